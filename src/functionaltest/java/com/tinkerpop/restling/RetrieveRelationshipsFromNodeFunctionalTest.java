@@ -12,9 +12,12 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.ws.rs.core.MediaType;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Scanner;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
 
@@ -58,6 +61,16 @@ public class RetrieveRelationshipsFromNodeFunctionalTest {
         }
     }
 
+    @Test
+    public void shouldGzipRelationshipListsWhenClientAcceptsGzip() throws Exception {
+        WebResource resource = Client.create().resource(WebServer.BASE_URI + nodeWithRelationships + "/relationships/dir/all");
+        ClientResponse response = resource.accept(MediaType.APPLICATION_JSON).header("Accept-Encoding", "gzip").get(ClientResponse.class);
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getMetadata().getFirst("Content-Encoding"));
+        InputStream json = new GZIPInputStream(response.getEntityInputStream());
+        verifyRelReps(3, new Scanner(json, "UTF-8").useDelimiter("\\A").next());
+    }
+
     @Test
     public void shouldRespondWith200AndListOfRelationshipRepresentationsWhenGettingAllRelationshipsForANode() {
         ClientResponse response = sendRetrieveRequestToServer(nodeWithRelationships, "/all");
@@ -4,6 +4,7 @@ import java.util.HashMap;
 
 import com.sun.grizzly.http.SelectorThread;
 import com.sun.jersey.api.container.grizzly.GrizzlyWebContainerFactory;
+import com.tinkerpop.restling.web.CompressionFilter;
 
 public enum WebServer {
 	INSTANCE;
@@ -15,6 +16,7 @@ public enum WebServer {
     public void startServer() {
         final HashMap<String, String> initParams = new HashMap<String, String>();
         initParams.put("com.sun.jersey.config.property.packages", "com.tinkerpop.restling.web");
+        initParams.put("com.sun.jersey.spi.container.ContainerResponseFilters", CompressionFilter.class.getName());
 
         try {
 			threadSelector = GrizzlyWebContainerFactory.create(BASE_URI, initParams);
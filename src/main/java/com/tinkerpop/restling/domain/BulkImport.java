@@ -0,0 +1,218 @@
+package com.tinkerpop.restling.domain;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.JsonToken;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Imports a stream of newline-delimited JSON elements straight into the embedded store, for example
+ * <pre>
+ * {"node": "alice", "properties": {"name": "Alice"}}
+ * {"node": "bob"}
+ * {"from": "alice", "to": "bob", "type": "KNOWS", "properties": {"since": 1999}}
+ * </pre>
+ * "node" is an optional string key chosen by the client; relationship ends are keys (strings) of nodes imported
+ * earlier in the same stream, or the numeric ids of existing nodes. An element with a "type" is a relationship and
+ * anything else a node; an element with an unknown field, a node with "from" or "to" and a relationship with a
+ * "node" key are rejected rather than guessed at. Elements are read token by token and committed in
+ * chunks of {@value #CHUNK_SIZE_PROPERTY} elements (default {@value #DEFAULT_CHUNK_SIZE}). A failing element rolls
+ * back its own chunk and ends the import; chunks committed before it stay committed.
+ * <p/>
+ * Imported elements are not tracked one by one in {@link ElementVersions}, which would cost memory per element; new
+ * elements have no tags clients could hold yet. A chunk that adds relationships to nodes that existed before it
+ * changes all tags at once instead.
+ */
+public class BulkImport {
+
+    public static final String CHUNK_SIZE_PROPERTY = "restling.import.chunkSize";
+
+    static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    private final GraphDatabaseService neo;
+    private final ElementVersions versions;
+    private final int chunkSize;
+    private final Map<String, Long> nodeIds = new HashMap<String, Long>();
+    private final Set<Long> createdInChunk = new HashSet<Long>();
+    private boolean earlierNodesChanged;
+    private long nodes;
+    private long relationships;
+    private int line;
+
+    public BulkImport(URI baseUri) {
+        this(baseUri, Integer.getInteger(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE));
+    }
+
+    public BulkImport(URI baseUri, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunk size must be positive but was " + chunkSize);
+        DatabaseLocator.getGraphDatabase(baseUri);
+        this.neo = DatabaseLocator.getNeo();
+        this.versions = DatabaseLocator.getElementVersions();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every element of the stream, telling the listener about each committed chunk.
+     */
+    public void run(JsonParser parser, Visitor<BulkImport> progress) throws IOException {
+        boolean more = nextElement(parser, parser.nextToken());
+        while (more) {
+            more = importChunk(parser);
+            progress.visit(this);
+        }
+    }
+
+    /**
+     * @return the number of nodes committed so far
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of relationships committed so far
+     */
+    public long getRelationships() {
+        return relationships;
+    }
+
+    /**
+     * @return the line of the element read last, i.e. of the failing element once the import failed
+     */
+    public int getLine() {
+        return line;
+    }
+
+    private boolean importChunk(final JsonParser parser) throws IOException {
+        final long[] counts = new long[2];
+        final Boolean more;
+        versions.begin();
+        boolean success = false;
+        try {
+            more = DatabaseLocator.inTransaction(new Callable<Boolean>() {
+                public Boolean call() throws IOException {
+                    try {
+                        createdInChunk.clear();
+                        earlierNodesChanged = false;
+                        JsonToken token;
+                        int elements = 0;
+                        do {
+                            importElement(parser, counts);
+                            token = parser.nextToken();
+                        } while (++elements < chunkSize && token == JsonToken.START_OBJECT);
+                        if (earlierNodesChanged) versions.allChanged();
+                        return nextElement(parser, token);
+                    } catch (JsonProcessingException e) {
+                        throw new JsonParseRuntimeException(e.getMessage());
+                    } catch (org.neo4j.graphdb.NotFoundException e) {
+                        throw new NotFoundException(e.getMessage());
+                    }
+                }
+            });
+            success = true;
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        } finally {
+            versions.end(success);
+        }
+        nodes += counts[0];
+        relationships += counts[1];
+        return more;
+    }
+
+    private boolean nextElement(JsonParser parser, JsonToken token) {
+        if (token == null) return false;
+        if (token != JsonToken.START_OBJECT) {
+            line = parser.getTokenLocation().getLineNr();
+            throw new PropertyValueException("Expected an object but got " + token);
+        }
+        return true;
+    }
+
+    private void importElement(JsonParser parser, long[] counts) throws IOException {
+        line = parser.getTokenLocation().getLineNr();
+        String key = null;
+        String type = null;
+        Object from = null;
+        Object to = null;
+        PropertiesMap properties = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("properties".equals(field)) {
+                properties = PropertiesMap.read(parser);
+            } else if ("node".equals(field)) {
+                key = string(parser, field);
+            } else if ("type".equals(field)) {
+                type = string(parser, field);
+            } else if ("from".equals(field)) {
+                from = reference(parser);
+            } else if ("to".equals(field)) {
+                to = reference(parser);
+            } else {
+                throw new PropertyValueException("Unknown field '" + field + "' on line " + line);
+            }
+        }
+        if (type == null) {
+            if (from != null || to != null) {
+                throw new PropertyValueException("Relationship on line " + line + " has no 'type'");
+            }
+            createNode(key, properties);
+            counts[0]++;
+        } else {
+            if (key != null) throw new PropertyValueException("Element on line " + line + " is both a node and a relationship");
+            createRelationship(type, from, to, properties);
+            counts[1]++;
+        }
+    }
+
+    private static String string(JsonParser parser, String field) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+            throw new PropertyValueException("'" + field + "' must be a string but was " + parser.getCurrentToken());
+        }
+        return parser.getText();
+    }
+
+    private static Object reference(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) return parser.getLongValue();
+        if (parser.getCurrentToken() == JsonToken.VALUE_STRING) return parser.getText();
+        throw new PropertyValueException("A relationship end must be a node key or id but was " + parser.getCurrentToken());
+    }
+
+    private void createNode(String key, PropertiesMap properties) {
+        if (key != null && nodeIds.containsKey(key)) throw new PropertyValueException("Duplicate node key " + key);
+        final Node node = neo.createNode();
+        if (properties != null) properties.storeTo(node);
+        if (key != null) nodeIds.put(key, node.getId());
+        createdInChunk.add(node.getId());
+    }
+
+    private void createRelationship(String type, Object from, Object to, PropertiesMap properties) {
+        if (from == null || to == null) throw new PropertyValueException("Relationship needs both 'from' and 'to'");
+        final Node start = node(from);
+        final Node end = node(to);
+        if (start.equals(end)) throw new PropertyValueException("Relationship starts and ends at node " + start.getId());
+        final Relationship relationship = start.createRelationshipTo(end, DynamicRelationshipType.withName(type));
+        if (properties != null) properties.storeTo(relationship);
+        if (!createdInChunk.contains(start.getId()) || !createdInChunk.contains(end.getId())) earlierNodesChanged = true;
+    }
+
+    private Node node(Object reference) {
+        if (reference instanceof Long) return neo.getNodeById((Long) reference);
+        final Long nodeId = nodeIds.get(reference);
+        if (nodeId == null) throw new NotFoundException("No node imported with key " + reference);
+        return neo.getNodeById(nodeId);
+    }
+}
@@ -0,0 +1,18 @@
+package com.tinkerpop.restling.domain;
+
+import java.util.ArrayList;
+
+/**
+ * A comma separated query parameter such as ?fields=name,age, converted by Jersey through the String constructor.
+ */
+@SuppressWarnings("serial")
+public class CommaSeparatedList extends ArrayList<String> {
+    public CommaSeparatedList(String s) {
+        for (String e : s.split(",")) {
+            if (e.trim().length() > 0)
+                add(e.trim());
+        }
+    }
+
+    public CommaSeparatedList() { }
+}
@@ -0,0 +1,34 @@
+package com.tinkerpop.restling.domain;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates several iterables one after the other, opening each only when the previous one is exhausted.
+ */
+class ConcatenatedIterator<T> implements Iterator<T> {
+
+    private final Iterator<? extends Iterable<T>> sources;
+    private Iterator<T> current;
+
+    ConcatenatedIterator(Iterable<? extends Iterable<T>> sources) {
+        this.sources = sources.iterator();
+    }
+
+    public boolean hasNext() {
+        while (current == null || !current.hasNext()) {
+            if (!sources.hasNext()) return false;
+            current = sources.next().iterator();
+        }
+        return true;
+    }
+
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return current.next();
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -11,12 +11,18 @@ public class DatabaseLocator {
 
     private static Neo4jGraph db;
     private static EmbeddedGraphDatabase embeddedGraphDatabase;
+    private static ElementVersions versions;
+    private static RelationshipCursors cursors;
+    private static GroupCommitter groupCommitter;
 
     public static Graph getGraphDatabase(URI baseUri) {
         // TODO: this is just a KISS implementation
         if (db == null) {
             embeddedGraphDatabase = new EmbeddedGraphDatabase("target/neodb");
             db = new Neo4jGraph(embeddedGraphDatabase);
+            versions = new ElementVersions();
+            cursors = new RelationshipCursors();
+            groupCommitter = GroupCommitter.fromSystemProperties(versions);
         }
         return db;
     }
@@ -24,12 +30,46 @@ public class DatabaseLocator {
     public static void shutdownGraphDatabase(URI baseUri) {
         // TODO: this is just a KISS implementation
         if (db != null) {
+            if (groupCommitter != null) groupCommitter.shutdown();
             db.shutdown();
             db = null;
+            versions = null;
+            cursors = null;
+            groupCommitter = null;
         }
     }
 
+    private static final ThreadLocal<int[]> TRANSACTION_DEPTH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /**
+     * Runs the call in a transaction. Calls nested inside another call on the same thread join the outer transaction,
+     * which commits or rolls back everything once it ends, so several storage operations can be grouped into one
+     * commit.
+     */
     public static <T> T inTransaction(Callable<T> call) {
+        final int[] depth = TRANSACTION_DEPTH.get();
+        if (depth[0] > 0) {
+            depth[0]++;
+            try {
+                return callInCurrentTransaction(call);
+            } finally {
+                depth[0]--;
+            }
+        }
+        depth[0]++;
+        try {
+            return inOwnTransaction(call);
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    private static <T> T inOwnTransaction(Callable<T> call) {
         db.startTransaction();
         try {
             final T result = call.call();
@@ -46,6 +86,35 @@ public class DatabaseLocator {
         }
     }
 
+    /**
+     * @return whether the current thread runs inside a transaction started by {@link #inTransaction(Callable)}
+     */
+    public static boolean isInTransaction() {
+        return TRANSACTION_DEPTH.get()[0] > 0;
+    }
+
+    /**
+     * Runs a call that only reads, without starting a transaction: Neo4j reads committed data outside of transactions,
+     * so reads skip the transaction begin and commit and never touch the lock manager. Inside a transaction on the
+     * same thread the read sees that transaction's own changes. A write attempted outside a transaction fails.
+     */
+    public static <T> T read(Callable<T> call) {
+        return callInCurrentTransaction(call);
+    }
+
+    /**
+     * Runs the call in whatever transaction the current thread is in, if any, without starting or ending one.
+     */
+    private static <T> T callInCurrentTransaction(Callable<T> call) {
+        try {
+            return call.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static void inTransaction(final Runnable run) {
         inTransaction(new Callable<Void>() {
             public Void call() throws Exception {
@@ -58,4 +127,25 @@ public class DatabaseLocator {
     public static EmbeddedGraphDatabase getNeo() {
         return embeddedGraphDatabase;
     }
+
+    /**
+     * @return the version stamps of the database's elements, shared by all requests whatever their base URI
+     */
+    static ElementVersions getElementVersions() {
+        return versions;
+    }
+
+    /**
+     * @return the open continuations of the database's paged relationship listings
+     */
+    static RelationshipCursors getRelationshipCursors() {
+        return cursors;
+    }
+
+    /**
+     * @return the database's group committer, or null if group commit is not enabled
+     */
+    static GroupCommitter getGroupCommitter() {
+        return groupCommitter;
+    }
 }
@@ -0,0 +1,174 @@
+package com.tinkerpop.restling.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version stamps for nodes and relationships, used as entity tags. Every mutation made through
+ * {@link StorageActions} records the elements it touched; they get a new version from a single clock once the
+ * transaction has committed, so a tag is never newer than the data a reader can see. The process epoch in every tag
+ * keeps tags from an earlier run from matching.
+ * <p/>
+ * Only the versions of recently changed elements are kept, at most {@value #MAX_TRACKED_PROPERTY} of each kind
+ * (default {@value #DEFAULT_MAX_TRACKED}); all other elements share a floor version. Whenever entries are dropped,
+ * because the limit is reached or because their elements were deleted, the floor moves up to the current version, so
+ * a dropped element never gets back a tag it had before its last change. The price is that every untracked element
+ * of that kind gets a new tag and is read once more by clients revalidating it.
+ * <p/>
+ * A change to a relationship also changes both of its nodes, since node relationship lists embed relationships.
+ * Every write of the server goes through {@link StorageActions} or {@link BulkImport}: gremlin expressions run by
+ * {@link StorageActions#evaluate} run outside any transaction, so an expression that tries to write fails instead of
+ * changing data behind the tags' back.
+ * <p/>
+ * There is one instance per database, held by {@link DatabaseLocator}, whatever base URI a request comes in on.
+ */
+public final class ElementVersions {
+
+    public static final String MAX_TRACKED_PROPERTY = "restling.versions.maxTracked";
+
+    static final int DEFAULT_MAX_TRACKED = 100000;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    private final int maxTracked;
+    private final Stamps nodes = new Stamps();
+    private final Stamps relationships = new Stamps();
+    private final ThreadLocal<Pending> pending = new ThreadLocal<Pending>() {
+        @Override
+        protected Pending initialValue() {
+            return new Pending();
+        }
+    };
+
+    ElementVersions() {
+        this(Integer.getInteger(MAX_TRACKED_PROPERTY, DEFAULT_MAX_TRACKED));
+    }
+
+    ElementVersions(int maxTracked) {
+        if (maxTracked <= 0) throw new IllegalArgumentException("maximum tracked must be positive but was " + maxTracked);
+        this.maxTracked = maxTracked;
+    }
+
+    public String nodeTag(Object nodeId) {
+        return epoch + "." + nodes.version(nodeId);
+    }
+
+    public String relationshipTag(Object relationshipId) {
+        return epoch + "." + relationships.version(relationshipId);
+    }
+
+    void nodeChanged(Object nodeId) {
+        pending.get().nodes.add(nodeId);
+    }
+
+    void nodeDeleted(Object nodeId) {
+        pending.get().deletedNodes.add(nodeId);
+    }
+
+    void relationshipChanged(Object relationshipId, Object startNodeId, Object endNodeId) {
+        final Pending changes = pending.get();
+        changes.relationships.add(relationshipId);
+        changes.nodes.add(startNodeId);
+        changes.nodes.add(endNodeId);
+    }
+
+    void relationshipDeleted(Object relationshipId, Object startNodeId, Object endNodeId) {
+        final Pending changes = pending.get();
+        changes.deletedRelationships.add(relationshipId);
+        changes.nodes.add(startNodeId);
+        changes.nodes.add(endNodeId);
+    }
+
+    /**
+     * Records a change that may have touched any element, such as a bulk import; it changes every tag.
+     */
+    void allChanged() {
+        pending.get().all = true;
+    }
+
+    void begin() {
+        pending.get().depth++;
+    }
+
+    /**
+     * Ends a (possibly nested) unit of work; when the outermost one ends, its changes are published if it succeeded
+     * and dropped otherwise.
+     */
+    void end(boolean success) {
+        final Pending changes = pending.get();
+        if (--changes.depth > 0) return;
+        if (success && !changes.isEmpty()) {
+            publish(changes);
+        }
+        changes.clear();
+    }
+
+    /**
+     * @return the number of versions kept for nodes and relationships, for tests
+     */
+    int tracked() {
+        return nodes.versions.size() + relationships.versions.size();
+    }
+
+    private synchronized void publish(Pending changes) {
+        final long version = clock.incrementAndGet();
+        if (changes.all) {
+            nodes.reset(version);
+            relationships.reset(version);
+            return;
+        }
+        nodes.publish(changes.nodes, changes.deletedNodes, version);
+        relationships.publish(changes.relationships, changes.deletedRelationships, version);
+    }
+
+    private class Stamps {
+        final ConcurrentMap<Object, Long> versions = new ConcurrentHashMap<Object, Long>();
+        volatile long floor;
+
+        long version(Object id) {
+            final Long version = versions.get(id);
+            return version == null ? floor : version;
+        }
+
+        /**
+         * Raises the floor before dropping entries, so a reader that no longer finds an entry sees the raised floor.
+         */
+        void publish(List<Object> changed, List<Object> deleted, long version) {
+            for (Object id : changed) versions.put(id, version);
+            if (!deleted.isEmpty()) {
+                floor = version;
+                for (Object id : deleted) versions.remove(id);
+            }
+            if (versions.size() > maxTracked) reset(version);
+        }
+
+        void reset(long version) {
+            floor = version;
+            versions.clear();
+        }
+    }
+
+    private static class Pending {
+        int depth;
+        boolean all;
+        final List<Object> nodes = new ArrayList<Object>();
+        final List<Object> relationships = new ArrayList<Object>();
+        final List<Object> deletedNodes = new ArrayList<Object>();
+        final List<Object> deletedRelationships = new ArrayList<Object>();
+
+        boolean isEmpty() {
+            return !all && nodes.isEmpty() && relationships.isEmpty() && deletedNodes.isEmpty() && deletedRelationships.isEmpty();
+        }
+
+        void clear() {
+            all = false;
+            nodes.clear();
+            relationships.clear();
+            deletedNodes.clear();
+            deletedRelationships.clear();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.tinkerpop.restling.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces small writes from concurrent requests into shared transactions, so a burst of writes costs one commit
+ * (and one log flush) instead of one each. A single committer thread collects writes until either
+ * {@value #MAX_BATCH_SIZE_PROPERTY} writes (default {@value #DEFAULT_MAX_BATCH_SIZE}) are waiting or
+ * {@value #MAX_LATENCY_PROPERTY} milliseconds (default {@value #DEFAULT_MAX_LATENCY_MILLIS}) have passed since the
+ * first one arrived, and runs them in one transaction. Each caller blocks until its own write is committed.
+ * <p/>
+ * Neo4j has no savepoints, so if any write of a batch fails the shared transaction is rolled back and every write of
+ * the batch is retried in a transaction of its own; each caller then gets the outcome of its own write.
+ * <p/>
+ * Group commit is opt-in via the system property {@value #ENABLED_PROPERTY}. There is one committer per database,
+ * held by {@link DatabaseLocator}, so writes are grouped whatever base URI they arrive on.
+ */
+final class GroupCommitter {
+
+    static final String ENABLED_PROPERTY = "restling.groupCommit";
+    static final String MAX_LATENCY_PROPERTY = "restling.groupCommit.maxLatencyMillis";
+    static final String MAX_BATCH_SIZE_PROPERTY = "restling.groupCommit.maxBatchSize";
+
+    static final int DEFAULT_MAX_LATENCY_MILLIS = 5;
+    static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final ElementVersions versions;
+    private final long maxLatencyNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<Write>();
+    private final AtomicLong transactions = new AtomicLong();
+    private final Write stop = new Write(null);
+    private final Thread committer;
+    private volatile boolean stopped;
+
+    GroupCommitter(ElementVersions versions, long maxLatencyMillis, int maxBatchSize) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("batch size must be positive but was " + maxBatchSize);
+        this.versions = versions;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.maxBatchSize = maxBatchSize;
+        committer = new Thread(new Runnable() {
+            public void run() {
+                commitLoop();
+            }
+        }, "restling-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * @return a group committer configured from the system properties, or null if group commit is not enabled
+     */
+    static GroupCommitter fromSystemProperties(ElementVersions versions) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) return null;
+        return new GroupCommitter(versions, Integer.getInteger(MAX_LATENCY_PROPERTY, DEFAULT_MAX_LATENCY_MILLIS),
+                Integer.getInteger(MAX_BATCH_SIZE_PROPERTY, DEFAULT_MAX_BATCH_SIZE));
+    }
+
+    /**
+     * Commits the writes already collected and waits for the committer thread to finish. Writes that arrive later
+     * fail with an {@link IllegalStateException}.
+     */
+    void shutdown() {
+        stopped = true;
+        queue.add(stop);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                committer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Runs the write in the next group transaction and waits until it is committed.
+     *
+     * @throws RuntimeException the write's own failure
+     */
+    void write(Runnable work) {
+        final Write write = new Write(work);
+        queue.add(write);
+        if (stopped && queue.remove(write)) throw new IllegalStateException("group committer is shut down");
+        boolean interrupted = false;
+        while (true) {
+            try {
+                write.done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (write.failure != null) throw write.failure;
+    }
+
+    /**
+     * @return the number of transactions the committer has run, for tests
+     */
+    long transactions() {
+        return transactions.get();
+    }
+
+    /**
+     * @return the committer thread, for tests
+     */
+    Thread thread() {
+        return committer;
+    }
+
+    private void commitLoop() {
+        final List<Write> batch = new ArrayList<Write>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                final Write first = queue.take();
+                if (first == stop) break;
+                batch.add(first);
+                final long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    final Write next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    if (next == stop) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                for (Write write : batch) {
+                    if (write.failure == null) write.failure = new IllegalStateException("group committer interrupted");
+                }
+                break;
+            } catch (Throwable e) {
+                for (Write write : batch) {
+                    if (write.failure == null) write.failure = new RuntimeException(e);
+                }
+            } finally {
+                for (Write write : batch) write.done.countDown();
+                batch.clear();
+            }
+        }
+        stopped = true;
+        queue.drainTo(batch);
+        for (Write write : batch) {
+            write.failure = new IllegalStateException("group committer is shut down");
+            write.done.countDown();
+        }
+    }
+
+    private void commit(final List<Write> batch) {
+        try {
+            inTransaction(new Runnable() {
+                public void run() {
+                    for (Write write : batch) write.work.run();
+                }
+            });
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).failure = e;
+                return;
+            }
+        }
+        for (Write write : batch) {
+            try {
+                inTransaction(write.work);
+            } catch (RuntimeException e) {
+                write.failure = e;
+            }
+        }
+    }
+
+    private void inTransaction(Runnable work) {
+        transactions.incrementAndGet();
+        versions.begin();
+        boolean success = false;
+        try {
+            DatabaseLocator.inTransaction(work);
+            success = true;
+        } finally {
+            versions.end(success);
+        }
+    }
+
+    private static class Write {
+        final Runnable work;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile RuntimeException failure;
+
+        Write(Runnable work) {
+            this.work = work;
+        }
+    }
+}
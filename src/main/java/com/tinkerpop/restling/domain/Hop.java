@@ -0,0 +1,37 @@
+package com.tinkerpop.restling.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One hop of a neighborhood expansion: the direction to follow relationships in and, optionally, the relationship
+ * types to follow. Written as "dir" or "dir:TYPE1,TYPE2", e.g. "out:KNOWS,LIKES".
+ */
+public final class Hop {
+
+    private final RelationshipDirection direction;
+    private final List<String> labels;
+
+    public Hop(RelationshipDirection direction, List<String> labels) {
+        this.direction = direction;
+        this.labels = labels == null ? Collections.<String>emptyList() : labels;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the direction is not one of all, in or out
+     */
+    public static Hop valueOf(String hop) {
+        final int colon = hop.indexOf(':');
+        if (colon < 0) return new Hop(RelationshipDirection.valueOf(hop), null);
+        return new Hop(RelationshipDirection.valueOf(hop.substring(0, colon)),
+                new CommaSeparatedList(hop.substring(colon + 1)));
+    }
+
+    public RelationshipDirection getDirection() {
+        return direction;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+}
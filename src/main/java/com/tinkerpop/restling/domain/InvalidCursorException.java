@@ -0,0 +1,9 @@
+package com.tinkerpop.restling.domain;
+
+@SuppressWarnings("serial")
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid cursor "+cursor);
+    }
+}
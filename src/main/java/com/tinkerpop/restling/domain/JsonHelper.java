@@ -1,13 +1,28 @@
 package com.tinkerpop.restling.domain;
 
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.map.ObjectMapper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * All JSON conversion goes through a single, shared {@link ObjectMapper}. The mapper is thread-safe once configured
+ * and keeps its serializer/deserializer caches, so it must not be created per call.
+ */
 public class JsonHelper {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getJsonFactory();
+
     @SuppressWarnings("unchecked")
     public static Map<String, Object> jsonToMap(String json) {
         return (Map<String, Object>) readJson( json );
@@ -20,9 +35,67 @@ public class JsonHelper {
     
     private static Object readJson( String json )
     {
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            return mapper.readValue(json, Object.class);
+            return MAPPER.readValue(json, Object.class);
+        } catch (IOException e) {
+            throw new JsonParseRuntimeException( e );
+        }
+    }
+
+    public static Object readValue(JsonFactory factory, InputStream in) {
+        try {
+            return MAPPER.readValue(factory.createJsonParser(in), Object.class);
+        } catch (IOException e) {
+            throw new JsonParseRuntimeException( e );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readMap(JsonFactory factory, InputStream in) {
+        final Object value = readValue(factory, in);
+        if (!(value instanceof Map)) throw new JsonParseRuntimeException("Expected an object but got " + value);
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Reads the JSON object the parser is positioned on into a map, leaving the parser on its END_OBJECT token.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readMap(JsonParser parser) throws IOException {
+        return MAPPER.readValue(parser, Map.class);
+    }
+
+    public static PropertiesMap readProperties(JsonFactory factory, InputStream in) {
+        return readProperties(factory, in, false);
+    }
+
+    public static PropertiesMap readPropertiesPatch(JsonFactory factory, InputStream in) {
+        return readProperties(factory, in, true);
+    }
+
+    private static PropertiesMap readProperties(JsonFactory factory, InputStream in, boolean patch) {
+        try {
+            final JsonParser parser = factory.createJsonParser(in);
+            try {
+                parser.nextToken();
+                return patch ? PropertiesMap.readPatch(parser) : PropertiesMap.read(parser);
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new JsonParseRuntimeException( e );
+        }
+    }
+
+    public static Object readPropertyValue(JsonFactory factory, InputStream in) {
+        try {
+            final JsonParser parser = factory.createJsonParser(in);
+            try {
+                parser.nextToken();
+                return PropertiesMap.readValue(parser);
+            } finally {
+                parser.close();
+            }
         } catch (IOException e) {
             throw new JsonParseRuntimeException( e );
         }
@@ -33,30 +106,76 @@ public class JsonHelper {
     }
 
     public static String createJsonFrom(Object data) {
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            return mapper.writeValueAsString(data);
+            return MAPPER.writeValueAsString(data);
         } catch (IOException e) {
             throw new JsonParseRuntimeException( e );
         }
     }
 
-    public static String createJsonFromList(List<RelationshipRepresentation> relreps) {
-        StringBuilder result = new StringBuilder("[");
-        String sep = "";
-        for (RelationshipRepresentation relrep : relreps) {
-            result.append(sep);
-            result.append(createJsonFrom(relrep.serialize()));
-            sep = ", ";
+    public static String createJsonFrom(Representation representation) {
+        StringWriter result = new StringWriter();
+        try {
+            JsonGenerator generator = FACTORY.createJsonGenerator(result);
+            representation.serializeTo(generator);
+            generator.close();
+        } catch (IOException e) {
+            throw new JsonParseRuntimeException( e );
         }
-        result.append("]");
         return result.toString();
     }
 
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFERS = new ThreadLocal<ByteArrayOutputStream>() {
+        @Override
+        protected ByteArrayOutputStream initialValue() {
+            return new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * Encodes the representation once, as UTF-8 for JSON, into a per-thread buffer that is reused across requests;
+     * the returned array is the only copy made and its length is the exact entity size.
+     */
+    public static byte[] createBytesFrom(JsonFactory factory, Representation representation) {
+        ByteArrayOutputStream buffer = BUFFERS.get();
+        buffer.reset();
+        try {
+            JsonGenerator generator = createJsonGenerator(factory, buffer);
+            representation.serializeTo(generator);
+            generator.close();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new JsonParseRuntimeException( e );
+        } finally {
+            if (buffer.size() > MAX_POOLED_BUFFER_SIZE) {
+                BUFFERS.remove();
+            }
+        }
+    }
+
+    public static JsonFactory jsonFactory() {
+        return FACTORY;
+    }
+
+    public static JsonGenerator createJsonGenerator(OutputStream out) throws IOException {
+        return createJsonGenerator(FACTORY, out);
+    }
+
+    public static JsonGenerator createJsonGenerator(JsonFactory factory, OutputStream out) throws IOException {
+        return factory.createJsonGenerator(out, JsonEncoding.UTF8);
+    }
+
+    public static void writeJsonTo(JsonGenerator generator, Object data) throws IOException {
+        MAPPER.writeValue(generator, data);
+    }
+
+    @SuppressWarnings("unchecked")
     public static List<Object> jsonToList(String json) {
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            return mapper.readValue(json, List.class);
+            return MAPPER.readValue(json, List.class);
         } catch (IOException e) {
             throw new JsonParseRuntimeException( e );
         }
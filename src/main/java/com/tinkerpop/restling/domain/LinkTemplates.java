@@ -0,0 +1,27 @@
+package com.tinkerpop.restling.domain;
+
+import java.net.URI;
+
+/**
+ * The link prefixes for one base URI. Each {@link StorageActions} builds them once for the request's base URI and
+ * shares them between all representations it creates; a hypermedia link is then just the prefix plus an id and path.
+ * They are not cached across requests, since the base URI comes from the request's Host header.
+ */
+public final class LinkTemplates {
+
+    private final String nodePrefix;
+    private final String relationshipPrefix;
+
+    public LinkTemplates(URI baseUri) {
+        this.nodePrefix = String.valueOf(baseUri);
+        this.relationshipPrefix = nodePrefix + "relationships/";
+    }
+
+    public String node(Object nodeId) {
+        return nodePrefix + nodeId;
+    }
+
+    public String relationship(Object relationshipId) {
+        return relationshipPrefix + relationshipId;
+    }
+}
@@ -0,0 +1,30 @@
+package com.tinkerpop.restling.domain;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A JSON array of representations; null items are written as JSON nulls.
+ */
+public class ListRepresentation implements Representation {
+
+    private final List<? extends Representation> items;
+
+    public ListRepresentation(List<? extends Representation> items) {
+        this.items = items;
+    }
+
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        for (Representation item : items) {
+            if (item == null) {
+                generator.writeNull();
+            } else {
+                item.serializeTo(generator);
+            }
+        }
+        generator.writeEndArray();
+    }
+}
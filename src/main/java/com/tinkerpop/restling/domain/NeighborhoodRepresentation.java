@@ -0,0 +1,37 @@
+package com.tinkerpop.restling.domain;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The nodes and relationships of an expanded neighborhood, each listed once.
+ */
+public class NeighborhoodRepresentation implements Representation {
+
+    private final List<NodeRepresentation> nodes;
+    private final List<RelationshipRepresentation> relationships;
+
+    public NeighborhoodRepresentation(List<NodeRepresentation> nodes, List<RelationshipRepresentation> relationships) {
+        this.nodes = nodes;
+        this.relationships = relationships;
+    }
+
+    public List<NodeRepresentation> getNodes() {
+        return nodes;
+    }
+
+    public List<RelationshipRepresentation> getRelationships() {
+        return relationships;
+    }
+
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("nodes");
+        new ListRepresentation(nodes).serializeTo(generator);
+        generator.writeFieldName("relationships");
+        new ListRepresentation(relationships).serializeTo(generator);
+        generator.writeEndObject();
+    }
+}
@@ -1,56 +1,85 @@
 package com.tinkerpop.restling.domain;
 
 import com.tinkerpop.gremlin.models.pgm.Vertex;
+import org.codehaus.jackson.JsonGenerator;
+import org.neo4j.graphdb.Node;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
-public class NodeRepresentation {
+public class NodeRepresentation implements Representation {
 
     private final Object id;
-    private final URI baseUri;
+    private final String self;
     private final PropertiesMap properties;
 
     public NodeRepresentation(URI baseUri, Vertex node) {
-        this.baseUri = baseUri;
+        this(new LinkTemplates(baseUri), node);
+    }
+
+    public NodeRepresentation(LinkTemplates links, Vertex node) {
         this.id = node.getId();
+        this.self = links.node(id);
         this.properties = new PropertiesMap(node);
     }
 
+    /**
+     * Represents the node with only the given property keys, or all of its properties if fields is null.
+     */
+    public NodeRepresentation(LinkTemplates links, Node node, Collection<String> fields) {
+        this.id = node.getId();
+        this.self = links.node(id);
+        this.properties = new PropertiesMap(node, fields);
+    }
+
     public URI selfUri() {
         return uri("");
     }
 
     private URI uri(String path) {
-        try {
-            return new URI(link(path));
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
-        }
+        return URI.create(link(path));
     }
 
     private String link(String path) {
-        return baseUri.toString() + getId() + path;
+        return self + path;
     }
 
     public Map<String, Object> serialize() {
         HashMap<String, Object> result = new HashMap<String, Object>();
-        result.put("self", selfUri().toString());
-        result.put("create relationship", relationshipCreationUri().toString());
-        result.put("all relationships", allRelationshipsUri().toString());
-        result.put("incoming relationships", incomingRelationshipsUri().toString());
-        result.put("outgoing relationships", outgoingRelationshipsUri().toString());
+        result.put("self", self);
+        result.put("create relationship", link("/relationships"));
+        result.put("all relationships", link("/relationships/all"));
+        result.put("incoming relationships", link("/relationships/in"));
+        result.put("outgoing relationships", link("/relationships/out"));
         result.put("all typed relationships", allTypedRelationshipsUriTemplate());
         result.put("incoming typed relationships", incomingTypedRelationshipsUriTemplate());
         result.put("outgoing typed relationships", outgoingTypedRelationshipsUriTemplate());
-        result.put("properties", propertiesUri().toString());
+        result.put("properties", link("/properties"));
         result.put("property", propertyUriTemplate());
         result.put("data", properties.serialize());
         return result;
     }
 
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("self", self);
+        generator.writeStringField("create relationship", self + "/relationships");
+        generator.writeStringField("all relationships", self + "/relationships/all");
+        generator.writeStringField("incoming relationships", self + "/relationships/in");
+        generator.writeStringField("outgoing relationships", self + "/relationships/out");
+        generator.writeStringField("all typed relationships", self + "/relationships/all/{-list|&|types}");
+        generator.writeStringField("incoming typed relationships", self + "/relationships/in/{-list|&|types}");
+        generator.writeStringField("outgoing typed relationships", self + "/relationships/out/{-list|&|types}");
+        generator.writeStringField("properties", self + "/properties");
+        generator.writeStringField("property", self + "/properties/{key}");
+        generator.writeFieldName("data");
+        properties.serializeTo(generator);
+        generator.writeEndObject();
+    }
+
     public Object getId() {
         return id;
     }
@@ -0,0 +1,40 @@
+package com.tinkerpop.restling.domain;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The nodes found for a list of requested ids, together with the ids no node exists for.
+ */
+public class NodesRepresentation implements Representation {
+
+    private final List<NodeRepresentation> nodes;
+    private final List<Long> missing;
+
+    public NodesRepresentation(List<NodeRepresentation> nodes, List<Long> missing) {
+        this.nodes = nodes;
+        this.missing = missing;
+    }
+
+    public List<NodeRepresentation> getNodes() {
+        return nodes;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("nodes");
+        new ListRepresentation(nodes).serializeTo(generator);
+        generator.writeArrayFieldStart("missing");
+        for (Long id : missing) {
+            generator.writeNumber(id);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,52 @@
+package com.tinkerpop.restling.domain;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A path through the graph as the URIs of its nodes, from start to end, and of the relationships between them.
+ */
+public class PathRepresentation implements Representation {
+
+    private final LinkTemplates links;
+    private final List<Long> nodeIds;
+    private final List<Long> relationshipIds;
+
+    public PathRepresentation(LinkTemplates links, List<Long> nodeIds, List<Long> relationshipIds) {
+        this.links = links;
+        this.nodeIds = nodeIds;
+        this.relationshipIds = relationshipIds;
+    }
+
+    public List<Long> getNodeIds() {
+        return nodeIds;
+    }
+
+    public List<Long> getRelationshipIds() {
+        return relationshipIds;
+    }
+
+    public int length() {
+        return relationshipIds.size();
+    }
+
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("start", links.node(nodeIds.get(0)));
+        generator.writeStringField("end", links.node(nodeIds.get(nodeIds.size() - 1)));
+        generator.writeNumberField("length", length());
+        generator.writeArrayFieldStart("nodes");
+        for (Long nodeId : nodeIds) {
+            generator.writeString(links.node(nodeId));
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("relationships");
+        for (Long relationshipId : relationshipIds) {
+            generator.writeString(links.relationship(relationshipId));
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+}
@@ -1,27 +1,154 @@
 package com.tinkerpop.restling.domain;
 
 import com.tinkerpop.gremlin.models.pgm.Element;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.neo4j.graphdb.PropertyContainer;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.*;
 
 
-public class PropertiesMap {
+public class PropertiesMap implements Representation {
 
     private final Map<String, Object> values = new HashMap<String, Object>();
 
+    private static final int INITIAL_ARRAY_CAPACITY = 16;
+
+    private PropertiesMap() {
+    }
+
     public PropertiesMap(Element container) {
         for (String key : container.getPropertyKeys()) {
             values.put(key, container.getProperty(key));
         }
     }
 
+    public PropertiesMap(PropertyContainer container) {
+        this(container, null);
+    }
+
+    /**
+     * Reads only the given keys from the container, or all of its properties if keys is null. Keys the container does
+     * not have are left out.
+     */
+    public PropertiesMap(PropertyContainer container, Collection<String> keys) {
+        if (keys == null) {
+            for (String key : container.getPropertyKeys()) {
+                values.put(key, container.getProperty(key));
+            }
+        } else {
+            for (String key : keys) {
+                final Object value = container.getProperty(key, null);
+                if (value != null) values.put(key, value);
+            }
+        }
+    }
+
     public PropertiesMap(Map<String, Object> map) {
         for (Map.Entry<String, Object> entry : map.entrySet()) {
             values.put(entry.getKey(), toInternalType(entry.getValue()));
         }
     }
 
+    /**
+     * Reads a properties object token by token, converting each value to its internal type as it is read instead of
+     * going through a generic map/list tree first. The parser must be positioned on the START_OBJECT token.
+     */
+    public static PropertiesMap read(JsonParser parser) throws IOException {
+        return read(parser, false);
+    }
+
+    /**
+     * Reads a properties patch for {@link #patch(PropertyContainer)}: like {@link #read(JsonParser)}, but a null value
+     * marks its key for removal.
+     */
+    public static PropertiesMap readPatch(JsonParser parser) throws IOException {
+        return read(parser, true);
+    }
+
+    private static PropertiesMap read(JsonParser parser, boolean patch) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new PropertyValueException("Expected an object but got " + parser.getCurrentToken());
+        }
+        final PropertiesMap result = new PropertiesMap();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            result.values.put(key, patch && token == JsonToken.VALUE_NULL ? null : readValue(parser));
+        }
+        return result;
+    }
+
+    /**
+     * Reads a single property value (scalar or array) at the parser's current token.
+     */
+    public static Object readValue(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+            return readArray(parser);
+        }
+        return readScalar(parser);
+    }
+
+    private static Object readScalar(JsonParser parser) throws IOException {
+        final JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) return parser.getText();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) return parser.getNumberValue();
+        if (token == JsonToken.VALUE_TRUE) return Boolean.TRUE;
+        if (token == JsonToken.VALUE_FALSE) return Boolean.FALSE;
+        throw new PropertyValueException("Unsupported value " + token);
+    }
+
+    private static Object readArray(JsonParser parser) throws IOException {
+        final JsonToken first = parser.nextToken();
+        if (first == JsonToken.END_ARRAY) {
+            return new byte[0];
+        }
+        if (first == JsonToken.VALUE_STRING) {
+            final List<String> strings = new ArrayList<String>();
+            for (JsonToken token = first; token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token != JsonToken.VALUE_STRING) throw new PropertyValueException("Mixed array types " + first + " and " + token);
+                strings.add(parser.getText());
+            }
+            return strings.toArray(new String[strings.size()]);
+        }
+        if (first == JsonToken.VALUE_TRUE || first == JsonToken.VALUE_FALSE) {
+            boolean[] booleans = new boolean[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            for (JsonToken token = first; token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token != JsonToken.VALUE_TRUE && token != JsonToken.VALUE_FALSE) throw new PropertyValueException("Mixed array types " + first + " and " + token);
+                if (size == booleans.length) booleans = Arrays.copyOf(booleans, size * 2);
+                booleans[size++] = token == JsonToken.VALUE_TRUE;
+            }
+            return Arrays.copyOf(booleans, size);
+        }
+        if (first == JsonToken.VALUE_NUMBER_INT || first == JsonToken.VALUE_NUMBER_FLOAT) {
+            long[] longs = new long[INITIAL_ARRAY_CAPACITY];
+            double[] doubles = null;
+            int size = 0;
+            for (JsonToken token = first; token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == JsonToken.VALUE_NUMBER_FLOAT && doubles == null) {
+                    doubles = new double[longs.length];
+                    for (int i = 0; i < size; i++) doubles[i] = longs[i];
+                    longs = null;
+                } else if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+                    throw new PropertyValueException("Mixed array types " + first + " and " + token);
+                }
+                if (doubles != null) {
+                    if (size == doubles.length) doubles = Arrays.copyOf(doubles, size * 2);
+                    doubles[size++] = parser.getDoubleValue();
+                } else {
+                    if (size == longs.length) longs = Arrays.copyOf(longs, size * 2);
+                    longs[size++] = parser.getLongValue();
+                }
+            }
+            return doubles != null ? Arrays.copyOf(doubles, size) : Arrays.copyOf(longs, size);
+        }
+        throw new PropertyValueException("Unsupported array type " + first);
+    }
+
     public Object getValue(String key) {
         return values.get(key);
     }
@@ -34,28 +161,134 @@ public class PropertiesMap {
         return result;
     }
 
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            if (!writeValue(generator, entry.getValue())) {
+                throw new PropertyValueException("Unsupported value type " + entry.getValue().getClass());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a property value (scalar or array) to the generator.
+     *
+     * @return false if the value is not of a property value type and nothing was written
+     */
+    static boolean writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Character) {
+            generator.writeString(value.toString());
+        } else if (value != null && value.getClass().isArray()) {
+            generator.writeStartArray();
+            if (value instanceof Object[]) {
+                for (Object element : (Object[]) value) {
+                    if (!writeValue(generator, element)) {
+                        throw new PropertyValueException("Unsupported array element type " + element);
+                    }
+                }
+            } else if (value instanceof long[]) {
+                for (long element : (long[]) value) generator.writeNumber(element);
+            } else if (value instanceof double[]) {
+                for (double element : (double[]) value) generator.writeNumber(element);
+            } else if (value instanceof boolean[]) {
+                for (boolean element : (boolean[]) value) generator.writeBoolean(element);
+            } else if (value instanceof int[]) {
+                for (int element : (int[]) value) generator.writeNumber(element);
+            } else if (value instanceof float[]) {
+                for (float element : (float[]) value) generator.writeNumber(element);
+            } else if (value instanceof short[]) {
+                for (short element : (short[]) value) generator.writeNumber(element);
+            } else if (value instanceof byte[]) {
+                for (byte element : (byte[]) value) generator.writeNumber(element);
+            } else {
+                int size = Array.getLength(value);
+                for (int i = 0; i < size; i++) {
+                    writeValue(generator, Array.get(value, i));
+                }
+            }
+            generator.writeEndArray();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
     void storeTo(Element container) {
         for (Map.Entry<String, Object> entry : values.entrySet()) {
             container.setProperty(entry.getKey(), entry.getValue());
         }
     }
 
+    void storeTo(PropertyContainer container) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            container.setProperty(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Merges a patch read by {@link #readPatch(JsonParser)} into the container: keys with a null value are removed,
+     * other keys are only written if the container does not already hold an equal value, and keys the patch does not
+     * mention are left alone.
+     *
+     * @return whether the container changed
+     */
+    boolean patch(PropertyContainer container) {
+        boolean changed = false;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            final String key = entry.getKey();
+            final Object value = entry.getValue();
+            if (value == null) {
+                if (container.hasProperty(key)) {
+                    container.removeProperty(key);
+                    changed = true;
+                }
+            } else if (!Arrays.deepEquals(new Object[]{value}, new Object[]{container.getProperty(key, null)})) {
+                container.setProperty(key, value);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Converts a value parsed from JSON (a scalar or a list) to the type it is stored as.
+     */
     @SuppressWarnings("unchecked")
-    private static Object toInternalType(Object value) {
+    public static Object toInternalType(Object value) {
         if (value instanceof List) {
             List list = (List) value;
             if (list.isEmpty()) {
                 return new byte[0];
             } else {
                 Object first = list.get(0);
-                if (first instanceof String) {
-                    return stringArray(list);
-                } else if (first instanceof Number) {
-                    return numberArray(list);
-                } else if (first instanceof Boolean) {
-                    return booleanArray(list);
-                } else {
-                    throw new PropertyValueException("Unsupported array type " + first.getClass());
+                try {
+                    if (first instanceof String) {
+                        return stringArray(list);
+                    } else if (first instanceof Number) {
+                        return numberArray(list);
+                    } else if (first instanceof Boolean) {
+                        return booleanArray(list);
+                    } else {
+                        throw new PropertyValueException("Unsupported array type " + first.getClass());
+                    }
+                } catch (ClassCastException e) {
+                    throw new PropertyValueException("Mixed array types in " + list);
+                } catch (ArrayStoreException e) {
+                    throw new PropertyValueException("Mixed array types in " + list);
                 }
             }
         } else {
@@ -74,27 +307,30 @@ public class PropertiesMap {
         return value;
     }
 
-    private static Boolean[] booleanArray( List<Boolean> list )
+    private static boolean[] booleanArray( List<Boolean> list )
     {
-        return list.toArray( new Boolean[list.size()] );
+        boolean[] internal = new boolean[list.size()];
+        for (int i = 0; i < internal.length; i++) {
+            internal[i] = list.get(i);
+        }
+        return internal;
     }
 
-    private static Number[] numberArray(List<Number> numbers) {
-        Number[] internal = new Number[numbers.size()];
-        for (int i = 0; i < internal.length; i++) {
-            Number number = numbers.get(i);
+    private static Object numberArray(List<Number> numbers) {
+        for (Number number : numbers) {
             if (number instanceof Float || number instanceof Double) {
-                number = number.doubleValue();
-            } else {
-                number = number.longValue();
+                double[] internal = new double[numbers.size()];
+                for (int i = 0; i < internal.length; i++) {
+                    internal[i] = numbers.get(i).doubleValue();
+                }
+                return internal;
             }
-            internal[i] = number;
         }
-        if (internal[0] instanceof Double) {
-            return Arrays.copyOf(internal, internal.length, Double[].class);
-        } else {
-            return Arrays.copyOf(internal, internal.length, Long[].class);
+        long[] internal = new long[numbers.size()];
+        for (int i = 0; i < internal.length; i++) {
+            internal[i] = numbers.get(i).longValue();
         }
+        return internal;
     }
 
     private static String[] stringArray(List<String> strings) {
@@ -103,7 +339,22 @@ public class PropertiesMap {
 
     private Object toSerializedType(Object value) {
         if (value.getClass().isArray()) {
-            if (value.getClass().getComponentType().isPrimitive()) {
+            if (value instanceof long[]) {
+                long[] array = (long[]) value;
+                List<Object> result = new ArrayList<Object>(array.length);
+                for (long element : array) result.add(element);
+                return result;
+            } else if (value instanceof double[]) {
+                double[] array = (double[]) value;
+                List<Object> result = new ArrayList<Object>(array.length);
+                for (double element : array) result.add(element);
+                return result;
+            } else if (value instanceof boolean[]) {
+                boolean[] array = (boolean[]) value;
+                List<Object> result = new ArrayList<Object>(array.length);
+                for (boolean element : array) result.add(element);
+                return result;
+            } else if (value.getClass().getComponentType().isPrimitive()) {
                 int size = Array.getLength(value);
                 List<Object> result = new ArrayList<Object>();
                 for (int i = 0; i < size; i++) {
@@ -0,0 +1,160 @@
+package com.tinkerpop.restling.domain;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The open continuations of paged relationship listings, keyed by continuation token. A paged listing runs in
+ * relationship id order. The store hands out a node's relationships in no particular order, so finding the next ids
+ * takes a scan of all of the node's relationships; a scan keeps the smallest {@value #WINDOW_PROPERTY} ids (default
+ * {@value #DEFAULT_WINDOW}) after the previous page, and the ids of that window still to come are kept here. Pages
+ * after the first only look up their own relationships until the window is used up, so a node with n relationships
+ * is scanned about n / window times over a whole listing, not once per page. Only ids are kept, never live store
+ * iterators, and relationships deleted in between are skipped when looked up.
+ * <p/>
+ * Open continuations expire after a while and their number and total size are bounded. A token that is no longer open
+ * still carries the id of the last relationship handed out, so the listing resumes with a new scan for the window of
+ * larger ids. Every token also carries a fingerprint of its listing; a token used for another listing is rejected.
+ * <p/>
+ * There is one instance per database, held by {@link DatabaseLocator}.
+ */
+final class RelationshipCursors {
+
+    static final String WINDOW_PROPERTY = "restling.relationships.window";
+
+    static final int DEFAULT_WINDOW = 100000;
+    static final long TIME_TO_LIVE_MILLIS = 60 * 1000;
+    static final int MAX_OPEN = 1000;
+    static final int MAX_OPEN_IDS = 1000000;
+
+    private final ConcurrentMap<String, Remaining> open = new ConcurrentHashMap<String, Remaining>();
+    private final int window;
+    private long sequence;
+    private long openIds;
+
+    RelationshipCursors() {
+        this(Integer.getInteger(WINDOW_PROPERTY, DEFAULT_WINDOW));
+    }
+
+    RelationshipCursors(int window) {
+        if (window <= 0) throw new IllegalArgumentException("window must be positive but was " + window);
+        this.window = window;
+    }
+
+    /**
+     * @return the number of ids a scan keeps for the pages to come
+     */
+    int window() {
+        return window;
+    }
+
+    /**
+     * Removes and returns the ids still to be listed after the token's page, if the token is still open.
+     *
+     * @throws InvalidCursorException if the token is malformed or belongs to another listing
+     */
+    synchronized Remaining resume(String token, Object nodeId, RelationshipDirection direction, List<String> labels) {
+        verify(token, nodeId, direction, labels);
+        final Remaining remaining = open.remove(token);
+        if (remaining == null) return null;
+        openIds -= remaining.size();
+        return remaining.isExpired(System.currentTimeMillis()) ? null : remaining;
+    }
+
+    /**
+     * Keeps the ids from the given position on open and returns the token for continuing with them.
+     *
+     * @param more whether the listing has ids beyond the given ones
+     */
+    synchronized String park(Object nodeId, RelationshipDirection direction, List<String> labels, long[] ids, int from,
+                             boolean more, long lastRelationshipId) {
+        final String token = token(nodeId, direction, labels, lastRelationshipId);
+        final Remaining remaining = new Remaining(ids, from, more, System.currentTimeMillis() + TIME_TO_LIVE_MILLIS);
+        if (remaining.size() > MAX_OPEN_IDS) return token;
+        evict(remaining.size());
+        open.put(token, remaining);
+        openIds += remaining.size();
+        return token;
+    }
+
+    /**
+     * @return a token that continues the listing with the ids larger than the given one, by a new scan
+     */
+    synchronized String token(Object nodeId, RelationshipDirection direction, List<String> labels, long lastRelationshipId) {
+        return Long.toString(++sequence, 36) + "." + fingerprint(nodeId, direction, labels) + "." + lastRelationshipId;
+    }
+
+    /**
+     * @return the id of the last relationship of the page the token was handed out for
+     * @throws InvalidCursorException if the token is malformed
+     */
+    static long lastRelationshipId(String token) {
+        final String[] parts = token.split("\\.");
+        if (parts.length != 3) throw new InvalidCursorException(token);
+        try {
+            return Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    int size() {
+        return open.size();
+    }
+
+    private static void verify(String token, Object nodeId, RelationshipDirection direction, List<String> labels) {
+        lastRelationshipId(token);
+        if (!token.split("\\.")[1].equals(fingerprint(nodeId, direction, labels))) throw new InvalidCursorException(token);
+    }
+
+    private static String fingerprint(Object nodeId, RelationshipDirection direction, List<String> labels) {
+        return Integer.toString((nodeId + ":" + direction + ":" + new TreeSet<String>(labels)).hashCode(), 36);
+    }
+
+    private void evict(int needed) {
+        final long now = System.currentTimeMillis();
+        for (Map.Entry<String, Remaining> entry : open.entrySet()) {
+            if (entry.getValue().isExpired(now)) remove(entry.getKey());
+        }
+        while (!open.isEmpty() && (open.size() >= MAX_OPEN || openIds + needed > MAX_OPEN_IDS)) {
+            Map.Entry<String, Remaining> oldest = null;
+            for (Map.Entry<String, Remaining> entry : open.entrySet()) {
+                if (oldest == null || entry.getValue().expires < oldest.getValue().expires) oldest = entry;
+            }
+            remove(oldest.getKey());
+        }
+    }
+
+    private void remove(String token) {
+        final Remaining remaining = open.remove(token);
+        if (remaining != null) openIds -= remaining.size();
+    }
+
+    /**
+     * The ids of a listing from a position on, and whether the listing goes on beyond them.
+     */
+    static class Remaining {
+        final long[] ids;
+        final int from;
+        final boolean more;
+        final long expires;
+
+        Remaining(long[] ids, int from, boolean more, long expires) {
+            this.ids = ids;
+            this.from = from;
+            this.more = more;
+            this.expires = expires;
+        }
+
+        int size() {
+            return ids.length - from;
+        }
+
+        boolean isExpired(long now) {
+            return now > expires;
+        }
+    }
+}
@@ -1,48 +1,65 @@
 package com.tinkerpop.restling.domain;
 
 import com.tinkerpop.gremlin.models.pgm.Edge;
+import org.codehaus.jackson.JsonGenerator;
+import org.neo4j.graphdb.Relationship;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
-public class RelationshipRepresentation {
+public class RelationshipRepresentation implements Representation {
 
     private final Object id;
-    private final URI baseUri;
     private final PropertiesMap properties;
     private final Object startNodeId;
     private final Object endNodeId;
     private final String type;
+    private final String self;
+    private final String start;
+    private final String end;
 
     public RelationshipRepresentation(URI baseUri, Edge relationship) {
-        this.baseUri = baseUri;
-        this.id = relationship.getId();
-        this.startNodeId = relationship.getOutVertex().getId();
-        this.endNodeId = relationship.getInVertex().getId();
-        this.properties = new PropertiesMap(relationship);
-        this.type = relationship.getLabel();
+        this(new LinkTemplates(baseUri), relationship);
     }
 
-    public URI selfUri() {
-        return uri(link(""));
+    public RelationshipRepresentation(LinkTemplates links, Edge relationship) {
+        this(links, relationship.getId(), relationship.getOutVertex().getId(), relationship.getInVertex().getId(),
+                relationship.getLabel(), new PropertiesMap(relationship));
     }
 
-    private URI uri(String link) {
-        try {
-            return new URI(link);
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
-        }
+    public RelationshipRepresentation(LinkTemplates links, Relationship relationship) {
+        this(links, relationship, null);
     }
 
-    private String link(String path) {
-        return baseUri + "relationships/" + getId() + path;
+    /**
+     * Represents the relationship with only the given property keys, or all of its properties if fields is null.
+     */
+    public RelationshipRepresentation(LinkTemplates links, Relationship relationship, Collection<String> fields) {
+        this(links, relationship.getId(), relationship.getStartNode().getId(), relationship.getEndNode().getId(),
+                relationship.getType().name(), new PropertiesMap(relationship, fields));
+    }
+
+    private RelationshipRepresentation(LinkTemplates links, Object id, Object startNodeId, Object endNodeId, String type,
+                                       PropertiesMap properties) {
+        this.id = id;
+        this.startNodeId = startNodeId;
+        this.endNodeId = endNodeId;
+        this.properties = properties;
+        this.type = type;
+        this.self = links.relationship(id);
+        this.start = links.node(startNodeId);
+        this.end = links.node(endNodeId);
     }
 
-    private String nodeLink(Object nodeId) {
-        return baseUri.toString() + nodeId;
+    public URI selfUri() {
+        return URI.create(self);
+    }
+
+    private String link(String path) {
+        return self + path;
     }
 
     public Object getId() {
@@ -62,15 +79,15 @@ public class RelationshipRepresentation {
     }
 
     public URI startNodeUri() {
-        return uri(nodeLink(startNodeId));
+        return URI.create(start);
     }
 
     public URI endNodeUri() {
-        return uri(nodeLink(endNodeId));
+        return URI.create(end);
     }
 
     public URI propertiesUri() {
-        return uri(link("/properties"));
+        return URI.create(link("/properties"));
     }
 
     public String propertyUriTemplate() {
@@ -83,15 +100,29 @@ public class RelationshipRepresentation {
 
     public Map<String, Object> serialize() {
         Map<String, Object> result = new HashMap<String, Object>();
-        result.put("self", selfUri().toString());
-        result.put("start", startNodeUri().toString());
-        result.put("end", endNodeUri().toString());
+        result.put("self", self);
+        result.put("start", start);
+        result.put("end", end);
         result.put("type", getType());
-        result.put("properties", propertiesUri().toString());
+        result.put("properties", link("/properties"));
         result.put("property", propertyUriTemplate());
         result.put("data", properties.serialize());
         return result;
     }
+
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("self", self);
+        generator.writeStringField("start", start);
+        generator.writeStringField("end", end);
+        generator.writeStringField("type", getType());
+        generator.writeStringField("properties", self + "/properties");
+        generator.writeStringField("property", self + "/properties/{key}");
+        generator.writeFieldName("data");
+        properties.serializeTo(generator);
+        generator.writeEndObject();
+    }
+
     public static RelationshipRepresentation represent(URI baseUrl, Edge edge) {
         return new RelationshipRepresentation(baseUrl,edge);
     }
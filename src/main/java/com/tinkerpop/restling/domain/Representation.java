@@ -0,0 +1,12 @@
+package com.tinkerpop.restling.domain;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Something that can write itself to a {@link JsonGenerator} directly, without building an intermediate map first.
+ */
+public interface Representation {
+    void serializeTo(JsonGenerator generator) throws IOException;
+}
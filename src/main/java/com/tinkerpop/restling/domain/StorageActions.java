@@ -6,10 +6,27 @@ import com.tinkerpop.gremlin.models.pgm.Edge;
 import com.tinkerpop.gremlin.models.pgm.Element;
 import com.tinkerpop.gremlin.models.pgm.Graph;
 import com.tinkerpop.gremlin.models.pgm.Vertex;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import static com.tinkerpop.restling.domain.DatabaseLocator.getGraphDatabase;
@@ -17,12 +34,24 @@ import static java.util.Arrays.asList;
 
 public class StorageActions {
 
-    private final URI baseUri;
+    public static final String CASCADE_DELETE_CHUNK_SIZE_PROPERTY = "restling.cascadeDelete.chunkSize";
+
+    static final int DEFAULT_CASCADE_DELETE_CHUNK_SIZE = 1000;
+
+    private final LinkTemplates links;
+    private final ElementVersions versions;
     private final Graph graphdb;
+    private final GraphDatabaseService neo;
+    private final RelationshipCursors cursors;
+    private final GroupCommitter groupCommitter;
 
     public StorageActions(final URI baseUri) {
-        this.baseUri = baseUri;
+        this.links = new LinkTemplates(baseUri);
         this.graphdb = DatabaseLocator.getGraphDatabase(baseUri);
+        this.neo = DatabaseLocator.getNeo();
+        this.versions = DatabaseLocator.getElementVersions();
+        this.cursors = DatabaseLocator.getRelationshipCursors();
+        this.groupCommitter = DatabaseLocator.getGroupCommitter();
     }
 
     public NodeRepresentation createNode(final PropertiesMap properties) {
@@ -31,7 +60,8 @@ public class StorageActions {
             public NodeRepresentation call() throws Exception {
                 final Vertex node = graphdb.addVertex(null);
                 properties.storeTo(node);
-                return new NodeRepresentation(baseUri, node);
+                versions.nodeChanged(node.getId());
+                return new NodeRepresentation(links, node);
             }
         });
     }
@@ -43,11 +73,33 @@ public class StorageActions {
                 final Vertex node = getVertex(nodeId);
                 deleteProperties(node);
                 properties.storeTo(node);
+                versions.nodeChanged(nodeId);
+            }
+        });
+    }
 
+    /**
+     * Merges the patch into the node's properties, see {@link PropertiesMap#patch(PropertyContainer)}. A patch that
+     * changes nothing writes nothing and leaves the node's entity tag as it was.
+     */
+    public void patchNodeProperties(final Object nodeId, final PropertiesMap patch) {
+        inTransaction(new Runnable() {
+            public void run() {
+                if (patch.patch(getNode(nodeId))) versions.nodeChanged(nodeId);
             }
         });
     }
 
+    private void deleteProperties(final PropertyContainer container) {
+        final List<String> keys = new ArrayList<String>();
+        for (final String key : container.getPropertyKeys()) {
+            keys.add(key);
+        }
+        for (final String key : keys) {
+            container.removeProperty(key);
+        }
+    }
+
     private void deleteProperties(final Element container) {
         for (final String key : container.getPropertyKeys()) {
             container.removeProperty(key);
@@ -55,17 +107,45 @@ public class StorageActions {
     }
 
     public NodeRepresentation retrieveNode(final Object nodeId) {
-        return inTransaction(new Callable<NodeRepresentation>() {
+        return retrieveNode(nodeId, null);
+    }
+
+    /**
+     * Reads the node with only the given property keys, or with all of its properties if fields is null.
+     */
+    public NodeRepresentation retrieveNode(final Object nodeId, final List<String> fields) {
+        return read(new Callable<NodeRepresentation>() {
 
             public NodeRepresentation call() throws Exception {
-                final Vertex node = getVertex(nodeId);
-                return new NodeRepresentation(baseUri, node);
+                return new NodeRepresentation(links, getNode(nodeId), fields);
+            }
+        });
+    }
+
+    /**
+     * Reads the nodes with the given ids in one read, in the order requested and each once. Ids no node exists for are
+     * reported as missing instead of failing the whole read. Only the given property keys are read, or all of them if
+     * fields is null.
+     */
+    public NodesRepresentation retrieveNodes(final List<Long> nodeIds, final List<String> fields) {
+        return read(new Callable<NodesRepresentation>() {
+            public NodesRepresentation call() throws Exception {
+                final List<NodeRepresentation> nodes = new ArrayList<NodeRepresentation>();
+                final List<Long> missing = new ArrayList<Long>();
+                for (final Long nodeId : new LinkedHashSet<Long>(nodeIds)) {
+                    try {
+                        nodes.add(new NodeRepresentation(links, neo.getNodeById(nodeId), fields));
+                    } catch (org.neo4j.graphdb.NotFoundException e) {
+                        missing.add(nodeId);
+                    }
+                }
+                return new NodesRepresentation(nodes, missing);
             }
         });
     }
 
     public PropertiesMap getNodeProperties(final Object nodeId) {
-        return inTransaction(new Callable<PropertiesMap>() {
+        return read(new Callable<PropertiesMap>() {
             public PropertiesMap call() throws Exception {
                 return new PropertiesMap(getVertex(nodeId));
             }
@@ -79,21 +159,59 @@ public class StorageActions {
                 if (node.getOutEdges().iterator().hasNext()) throw new CascadingDeleteException(nodeId);
                 if (node.getInEdges().iterator().hasNext()) throw new CascadingDeleteException(nodeId);
                 graphdb.removeVertex(node);
+                versions.nodeDeleted(nodeId);
             }
         });
     }
 
+    /**
+     * Deletes the node together with all of its relationships. The relationships are deleted in transactions of at
+     * most {@value #CASCADE_DELETE_CHUNK_SIZE_PROPERTY} relationships each (default
+     * {@value #DEFAULT_CASCADE_DELETE_CHUNK_SIZE}), the node with the last of them, so deleting a node with a huge
+     * number of relationships never builds one giant transaction. If deleting fails half way, the relationships
+     * deleted so far stay deleted.
+     */
+    public void deleteNodeCascading(final Object nodeId) {
+        deleteNodeCascading(nodeId, Integer.getInteger(CASCADE_DELETE_CHUNK_SIZE_PROPERTY, DEFAULT_CASCADE_DELETE_CHUNK_SIZE));
+    }
+
+    void deleteNodeCascading(final Object nodeId, final int chunkSize) {
+        boolean nodeDeleted = false;
+        while (!nodeDeleted) {
+            nodeDeleted = inTransaction(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    final Node node = getNode(nodeId);
+                    final Iterator<Relationship> relationships = node.getRelationships().iterator();
+                    final List<Relationship> chunk = new ArrayList<Relationship>(chunkSize);
+                    while (chunk.size() < chunkSize && relationships.hasNext()) {
+                        chunk.add(relationships.next());
+                    }
+                    final boolean last = !relationships.hasNext();
+                    for (Relationship relationship : chunk) {
+                        deleted(relationship);
+                        relationship.delete();
+                    }
+                    if (!last) return false;
+                    node.delete();
+                    versions.nodeDeleted(nodeId);
+                    return true;
+                }
+            });
+        }
+    }
+
     public void setNodeProperty(final Object nodeId, final String key, final Object value) {
-        inTransaction(new Runnable() {
+        smallWrite(new Runnable() {
             public void run() {
                 final Vertex node = getVertex(nodeId);
                 node.setProperty(key, value);
+                versions.nodeChanged(nodeId);
             }
         });
     }
 
     public Object getNodeProperty(final Object nodeId, final String key) {
-        return inTransaction(new Callable<Object>() {
+        return read(new Callable<Object>() {
             public Object call() throws Exception {
                 final Vertex node = getVertex(nodeId);
                 return getProperty(node, key);
@@ -101,6 +219,12 @@ public class StorageActions {
         });
     }
 
+    private Object getProperty(PropertyContainer container, String key) {
+        final Object result = container.getProperty(key, null);
+        if (result==null) throw new PropertyValueException("property not found "+key+" for element "+ container);
+        return result;
+    }
+
     private Object getProperty(Element element, String key) {
         final Object result = element.getProperty(key);
         if (result==null) throw new PropertyValueException("property not found "+key+" for element "+ element);
@@ -127,6 +251,7 @@ public class StorageActions {
                 }
                 final Edge relationship = graphdb.addEdge(null, startNode, endNode, type);
                 properties.storeTo(relationship);
+                changed(relationship);
                 final RelationshipRepresentation result = represent(relationship);
                 return result;
             }
@@ -138,6 +263,7 @@ public class StorageActions {
             public void run() {
                 final Vertex node = getVertex(nodeId);
                 deleteProperties(node);
+                versions.nodeChanged(nodeId);
             }
         });
     }
@@ -153,45 +279,31 @@ public class StorageActions {
             public Boolean call() throws Exception {
                 final Vertex node = getVertex(nodeId);
                 final boolean removed = node.removeProperty(key) != null;
+                if (removed) versions.nodeChanged(nodeId);
                 return removed;
             }
         });
     }
 
     public RelationshipRepresentation retrieveRelationship(final Object startNodeId, final String label) {
-        return inTransaction(new Callable<RelationshipRepresentation>() {
-            public RelationshipRepresentation call() throws Exception {
-                final Edge relationship = getEdge(startNodeId,label);
-                return represent(relationship);
-            }
-        });
+        return retrieveRelationship(startNodeId, label, null);
+    }
+
+    public RelationshipRepresentation retrieveRelationship(final Object startNodeId, final String label,
+                                                           final List<String> fields) {
+        return retrieveRelationship(relationship(startNodeId, label), fields);
     }
 
     public PropertiesMap getRelationshipProperties(final Object startNodeId, final String label) {
-        return inTransaction(new Callable<PropertiesMap>() {
-            public PropertiesMap call() throws Exception {
-                return new PropertiesMap(getEdge(startNodeId,label));
-            }
-        });
+        return getRelationshipProperties(relationship(startNodeId, label));
     }
 
     public Object getRelationshipProperty(final Object startNodeId, final String label, final String key) {
-        return inTransaction(new Callable<Object>() {
-            public Object call() throws Exception {
-                final Edge relationship = getEdge(startNodeId,label);
-                return getProperty(relationship,key);
-            }
-        });
+        return getRelationshipProperty(relationship(startNodeId, label), key);
     }
 
     public void removeRelationship(final Object startNodeId, final String label) {
-        inTransaction(new Runnable() {
-            public void run() {
-                final Edge relationship = getEdge(startNodeId,label);
-                graphdb.removeEdge(relationship);
-
-            }
-        });
+        removeRelationship(relationship(startNodeId, label));
     }
 
     public List<RelationshipRepresentation> retrieveRelationships(final Object nodeId, final RelationshipDirection direction,
@@ -201,79 +313,516 @@ public class StorageActions {
     }
     public List<RelationshipRepresentation> retrieveRelationships(final Object nodeId, final RelationshipDirection direction,
                                                                   final List<String> labels) {
-        return inTransaction(new Callable<List<RelationshipRepresentation>>() {
-            public List<RelationshipRepresentation> call() throws Exception {
-                final Vertex node = getVertex(nodeId);
-                final List<RelationshipRepresentation> result = new LinkedList<RelationshipRepresentation>();
-                if (direction == null || direction==RelationshipDirection.all || direction == RelationshipDirection.in)
-                    for (final Edge edge : node.getInEdges()) {
-                        if (labels.isEmpty() || labels.contains(edge.getLabel())) result.add(represent(edge));
+        final List<RelationshipRepresentation> result = new ArrayList<RelationshipRepresentation>();
+        visitRelationships(nodeId, direction, labels, new Visitor<RelationshipRepresentation>() {
+            public void visit(RelationshipRepresentation relationship) {
+                result.add(relationship);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Hands each matching relationship to the visitor while iterating the node's relationships, so callers can stream
+     * relationships without holding the whole list in memory. A type filter is passed down to Neo4j's typed
+     * relationship iteration, so relationships of other types are never loaded.
+     */
+    public void visitRelationships(final Object nodeId, final RelationshipDirection direction, final List<String> labels,
+                                   final Visitor<RelationshipRepresentation> visitor) {
+        visitRelationships(nodeId, direction, labels, null, visitor);
+    }
+
+    /**
+     * Like {@link #visitRelationships(Object, RelationshipDirection, List, Visitor)}, but reads only the given property
+     * keys of each relationship, or all of them if fields is null.
+     */
+    public void visitRelationships(final Object nodeId, final RelationshipDirection direction, final List<String> labels,
+                                   final List<String> fields, final Visitor<RelationshipRepresentation> visitor) {
+        read(new Callable<Void>() {
+            public Void call() throws Exception {
+                final Iterator<Relationship> relationships = relationships(getNode(nodeId), direction, labels);
+                while (relationships.hasNext()) {
+                    visitor.visit(new RelationshipRepresentation(links, relationships.next(), fields));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Visits one page of at most limit relationships, in relationship id order. Without a cursor the listing starts
+     * with the smallest id; with one, it continues with the ids the previous page left open or, if those have expired
+     * or are used up, with the relationships whose ids are larger than the last one of the previous page. Finding
+     * those scans all of the node's relationships once per window of ids, see {@link RelationshipCursors}.
+     * Relationships deleted since the listing started are skipped. Only the given property keys of each relationship
+     * are read, or all of them if fields is null.
+     *
+     * @return the cursor for the next page, or null if this was the last page
+     * @throws InvalidCursorException if the cursor is malformed or was handed out for another listing
+     */
+    public String visitRelationships(final Object nodeId, final RelationshipDirection direction, final List<String> labels,
+                                     final List<String> fields, final int limit, final String cursor,
+                                     final Visitor<RelationshipRepresentation> visitor) {
+        return read(new Callable<String>() {
+            public String call() throws Exception {
+                final Node node = getNode(nodeId);
+                RelationshipCursors.Remaining remaining = cursor == null ? null : cursors.resume(cursor, nodeId, direction, labels);
+                if (remaining == null) {
+                    remaining = relationshipIds(node, direction, labels,
+                            cursor == null ? -1 : RelationshipCursors.lastRelationshipId(cursor), Math.max(limit, cursors.window()));
+                }
+                final long[] ids = remaining.ids;
+                int next = remaining.from;
+                long lastId = -1;
+                int count = 0;
+                while (count < limit && next < ids.length) {
+                    final long id = ids[next++];
+                    lastId = id;
+                    final Relationship relationship;
+                    try {
+                        relationship = neo.getRelationshipById(id);
+                    } catch (org.neo4j.graphdb.NotFoundException e) {
+                        continue;
+                    }
+                    visitor.visit(new RelationshipRepresentation(links, relationship, fields));
+                    count++;
+                }
+                if (next == ids.length) return remaining.more ? cursors.token(nodeId, direction, labels, lastId) : null;
+                return cursors.park(nodeId, direction, labels, ids, next, remaining.more, lastId);
+            }
+        });
+    }
+
+    /**
+     * Scans the node's relationships in the direction and of the types given for the smallest window ids larger than
+     * after. Ids beyond the window are only counted, so the scan holds at most about twice the window at a time.
+     *
+     * @return the sorted ids, and whether the node has more relationships beyond them
+     */
+    private RelationshipCursors.Remaining relationshipIds(final Node node, final RelationshipDirection direction,
+                                                          final List<String> labels, final long after, final int window) {
+        long[] ids = new long[16];
+        int size = 0;
+        long bound = Long.MAX_VALUE;
+        boolean more = false;
+        final Iterator<Relationship> relationships = relationships(node, direction, labels);
+        while (relationships.hasNext()) {
+            final long id = relationships.next().getId();
+            if (id <= after || id == bound) continue;
+            if (id > bound) {
+                more = true;
+                continue;
+            }
+            if (size == ids.length) {
+                size = sortDistinct(ids, size);
+                if (size > window) {
+                    size = window;
+                    bound = ids[size - 1];
+                    more = true;
+                }
+                if (size * 2 > ids.length) ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[size++] = id;
+        }
+        size = sortDistinct(ids, size);
+        if (size > window) {
+            size = window;
+            more = true;
+        }
+        return new RelationshipCursors.Remaining(Arrays.copyOf(ids, size), 0, more, 0);
+    }
+
+    /**
+     * Sorts the first size ids and moves each distinct one to the front.
+     *
+     * @return the number of distinct ids
+     */
+    private static int sortDistinct(final long[] ids, final int size) {
+        Arrays.sort(ids, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ids[i] != ids[distinct - 1]) ids[distinct++] = ids[i];
+        }
+        return distinct;
+    }
+
+    /**
+     * Counts the node's relationships per type without representing them or reading any properties. With labels given,
+     * only those types are counted, and each of them is in the result even if the node has none of it.
+     *
+     * @return the number of relationships per type, in the order of the labels or in the order types were met
+     */
+    public Map<String, Long> countRelationships(final Object nodeId, final RelationshipDirection direction,
+                                                final List<String> labels) {
+        return read(new Callable<Map<String, Long>>() {
+            public Map<String, Long> call() throws Exception {
+                final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+                for (String label : labels) {
+                    counts.put(label, 0L);
+                }
+                final Iterator<Relationship> relationships = relationships(getNode(nodeId), direction, labels);
+                while (relationships.hasNext()) {
+                    final String type = relationships.next().getType().name();
+                    final Long count = counts.get(type);
+                    counts.put(type, count == null ? 1L : count + 1);
+                }
+                return counts;
+            }
+        });
+    }
+
+    /**
+     * Expands the node's neighborhood hop by hop, all in one read: each hop follows the relationships of the nodes the
+     * previous hop reached, in the hop's direction and restricted to its types. Every node and relationship is listed
+     * once however many paths lead to it, and a node is only expanded from the hop that first reached it. Only the
+     * given property keys are read, or all of them if fields is null.
+     */
+    public NeighborhoodRepresentation expand(final Object nodeId, final List<Hop> hops, final List<String> fields) {
+        return read(new Callable<NeighborhoodRepresentation>() {
+            public NeighborhoodRepresentation call() throws Exception {
+                final Node root = getNode(nodeId);
+                final Set<Long> seenNodes = new HashSet<Long>();
+                final Set<Long> seenRelationships = new HashSet<Long>();
+                final List<NodeRepresentation> nodes = new ArrayList<NodeRepresentation>();
+                final List<RelationshipRepresentation> relationships = new ArrayList<RelationshipRepresentation>();
+                seenNodes.add(root.getId());
+                nodes.add(new NodeRepresentation(links, root, fields));
+                List<Node> frontier = Collections.singletonList(root);
+                for (final Hop hop : hops) {
+                    final List<Node> reached = new ArrayList<Node>();
+                    for (final Node node : frontier) {
+                        final Iterator<Relationship> hopRelationships = relationships(node, hop.getDirection(), hop.getLabels());
+                        while (hopRelationships.hasNext()) {
+                            final Relationship relationship = hopRelationships.next();
+                            if (seenRelationships.add(relationship.getId())) {
+                                relationships.add(new RelationshipRepresentation(links, relationship, fields));
+                            }
+                            final Node other = relationship.getOtherNode(node);
+                            if (seenNodes.add(other.getId())) {
+                                nodes.add(new NodeRepresentation(links, other, fields));
+                                reached.add(other);
+                            }
+                        }
+                    }
+                    frontier = reached;
+                }
+                return new NeighborhoodRepresentation(nodes, relationships);
+            }
+        });
+    }
+
+    /**
+     * Finds a shortest path of at most maxDepth relationships from one node to another, following relationships in
+     * the given direction and of the given types (of any type if labels is empty). The search runs breadth first from
+     * both ends, always growing the side with the smaller frontier by one level, so on well connected graphs it
+     * visits far fewer nodes than a search from the start node alone. Any meeting of the two sides found while growing
+     * a level completes a shortest path, since no path was found at the previous, shorter total depth.
+     *
+     * @return a shortest path, or null if there is none within maxDepth
+     */
+    public PathRepresentation findShortestPath(final Object startNodeId, final Object endNodeId, final int maxDepth,
+                                               final RelationshipDirection direction, final List<String> labels) {
+        return read(new Callable<PathRepresentation>() {
+            public PathRepresentation call() throws Exception {
+                final Node start = getNode(startNodeId);
+                final Node end = getNode(endNodeId);
+                final Map<Long, Relationship> forward = new HashMap<Long, Relationship>();
+                final Map<Long, Relationship> backward = new HashMap<Long, Relationship>();
+                forward.put(start.getId(), null);
+                backward.put(end.getId(), null);
+                if (start.equals(end)) return path(start.getId(), forward, backward);
+                List<Node> forwardFrontier = Collections.singletonList(start);
+                List<Node> backwardFrontier = Collections.singletonList(end);
+                for (int depth = 0; depth < maxDepth && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty(); depth++) {
+                    final boolean forwardSide = forwardFrontier.size() <= backwardFrontier.size();
+                    final Map<Long, Relationship> visited = forwardSide ? forward : backward;
+                    final Map<Long, Relationship> opposite = forwardSide ? backward : forward;
+                    final RelationshipDirection sideDirection = forwardSide ? direction : reverse(direction);
+                    final List<Node> reached = new ArrayList<Node>();
+                    for (final Node node : forwardSide ? forwardFrontier : backwardFrontier) {
+                        final Iterator<Relationship> levelRelationships = relationships(node, sideDirection, labels);
+                        while (levelRelationships.hasNext()) {
+                            final Relationship relationship = levelRelationships.next();
+                            final Node other = relationship.getOtherNode(node);
+                            if (visited.containsKey(other.getId())) continue;
+                            visited.put(other.getId(), relationship);
+                            if (opposite.containsKey(other.getId())) return path(other.getId(), forward, backward);
+                            reached.add(other);
+                        }
                     }
-                if (direction == null || direction==RelationshipDirection.all || direction == RelationshipDirection.out) {
-                    for (final Edge edge : node.getOutEdges()) {
-                        if (labels.isEmpty() || labels.contains(edge.getLabel())) result.add(represent(edge));
+                    if (forwardSide) {
+                        forwardFrontier = reached;
+                    } else {
+                        backwardFrontier = reached;
                     }
                 }
-                return result;
+                return null;
+            }
+        });
+    }
+
+    private PathRepresentation path(final long meetingNodeId, final Map<Long, Relationship> forward,
+                                    final Map<Long, Relationship> backward) {
+        final LinkedList<Long> nodeIds = new LinkedList<Long>();
+        final LinkedList<Long> relationshipIds = new LinkedList<Long>();
+        nodeIds.add(meetingNodeId);
+        long nodeId = meetingNodeId;
+        for (Relationship relationship = forward.get(nodeId); relationship != null; relationship = forward.get(nodeId)) {
+            relationshipIds.addFirst(relationship.getId());
+            nodeId = otherNodeId(relationship, nodeId);
+            nodeIds.addFirst(nodeId);
+        }
+        nodeId = meetingNodeId;
+        for (Relationship relationship = backward.get(nodeId); relationship != null; relationship = backward.get(nodeId)) {
+            relationshipIds.addLast(relationship.getId());
+            nodeId = otherNodeId(relationship, nodeId);
+            nodeIds.addLast(nodeId);
+        }
+        return new PathRepresentation(links, nodeIds, relationshipIds);
+    }
+
+    private static long otherNodeId(final Relationship relationship, final long nodeId) {
+        final long startNodeId = relationship.getStartNode().getId();
+        return startNodeId == nodeId ? relationship.getEndNode().getId() : startNodeId;
+    }
+
+    private static RelationshipDirection reverse(final RelationshipDirection direction) {
+        if (direction == RelationshipDirection.in) return RelationshipDirection.out;
+        if (direction == RelationshipDirection.out) return RelationshipDirection.in;
+        return direction;
+    }
+
+    private Iterator<Relationship> relationships(final Node node, final RelationshipDirection direction, final List<String> labels) {
+        if (labels.isEmpty()) return node.getRelationships(direction.internal).iterator();
+        final List<Iterable<Relationship>> sources = new ArrayList<Iterable<Relationship>>();
+        for (RelationshipType type : relationshipTypes(labels)) {
+            sources.add(node.getRelationships(type, direction.internal));
+        }
+        return new ConcatenatedIterator<Relationship>(sources);
+    }
+
+    private static RelationshipType[] relationshipTypes(final List<String> labels) {
+        final Set<String> names = new LinkedHashSet<String>(labels);
+        final RelationshipType[] types = new RelationshipType[names.size()];
+        int i = 0;
+        for (final String name : names) {
+            types[i++] = DynamicRelationshipType.withName(name);
+        }
+        return types;
+    }
+
+    public void verifyNodeExists(final Object nodeId) {
+        read(new Callable<Void>() {
+            public Void call() throws Exception {
+                getVertex(nodeId);
+                return null;
             }
         });
     }
 
     private RelationshipRepresentation represent(final Edge edge) {
-        return new RelationshipRepresentation(baseUri, edge);
+        return new RelationshipRepresentation(links, edge);
+    }
+
+    private RelationshipRepresentation represent(final Relationship relationship) {
+        return new RelationshipRepresentation(links, relationship);
     }
 
     public void setRelationshipProperties(final Object startNodeId, final String label, final PropertiesMap properties) {
+        setRelationshipProperties(relationship(startNodeId, label), properties);
+    }
+
+    public void patchRelationshipProperties(final Object startNodeId, final String label, final PropertiesMap patch) {
+        patchRelationshipProperties(relationship(startNodeId, label), patch);
+    }
+
+    /**
+     * Finds the start node's outgoing relationship with the given label through the store's type-filtered
+     * relationship access, so only relationships of that type are loaded instead of every edge of the node.
+     */
+    private Relationship getEdge(final Object startNodeId, final String label) {
+        final Node node = getNode(startNodeId);
+        for (Relationship relationship : node.getRelationships(DynamicRelationshipType.withName(label), Direction.OUTGOING)) {
+            return relationship;
+        }
+        throw new NotFoundException("No relationship from " + startNodeId + " with label " + label);
+    }
+
+    private Node getNode(final Object nodeId) {
+        try {
+            return neo.getNodeById(((Number) nodeId).longValue());
+        } catch (org.neo4j.graphdb.NotFoundException e) {
+            throw new NotFoundException("node not found " + nodeId);
+        }
+    }
+
+    public void setRelationshipProperty(final Object startNodeId, final String label, final String key, final Object value) {
+        setRelationshipProperty(relationship(startNodeId, label), key, value);
+    }
+
+    public void removeRelationshipProperties(final Object startNodeId, final String label) {
+        removeRelationshipProperties(relationship(startNodeId, label));
+    }
+
+    public boolean removeRelationshipProperty(final Object startNodeId, final String label, final String propertyKey) {
+        return removeRelationshipProperty(relationship(startNodeId, label), propertyKey);
+    }
+
+    public RelationshipRepresentation retrieveRelationship(final RelationshipLookup lookup) {
+        return retrieveRelationship(lookup, (List<String>) null);
+    }
+
+    /**
+     * Reads the relationship with only the given property keys, or with all of its properties if fields is null.
+     */
+    public RelationshipRepresentation retrieveRelationship(final RelationshipLookup lookup, final List<String> fields) {
+        return read(new Callable<RelationshipRepresentation>() {
+            public RelationshipRepresentation call() throws Exception {
+                return new RelationshipRepresentation(links, lookup.find(), fields);
+            }
+        });
+    }
+
+    public void removeRelationship(final RelationshipLookup lookup) {
         inTransaction(new Runnable() {
             public void run() {
-                final Edge relationship = getEdge(startNodeId,label);
-                deleteProperties(relationship);
-                properties.storeTo(relationship);
+                final Relationship relationship = lookup.find();
+                deleted(relationship);
+                relationship.delete();
             }
         });
     }
 
-    private Edge getEdge(final Object startNodeId, final String label) {
-        final Vertex vertex = getVertex(startNodeId);
-        if (vertex==null) throw new NotFoundException("Unknown node "+startNodeId);
-        for (Edge edge : vertex.getOutEdges()) {
-            if (edge.getLabel().equals(label)) return edge;
-        }
-        throw new NotFoundException("No relationship from " + startNodeId + " with label " + label);
+    public PropertiesMap getRelationshipProperties(final RelationshipLookup lookup) {
+        return read(new Callable<PropertiesMap>() {
+            public PropertiesMap call() throws Exception {
+                return new PropertiesMap(lookup.find());
+            }
+        });
     }
 
-    public void setRelationshipProperty(final Object startNodeId, final String label, final String key, final Object value) {
+    public void setRelationshipProperties(final RelationshipLookup lookup, final PropertiesMap properties) {
         inTransaction(new Runnable() {
             public void run() {
-                final Edge relationship = getEdge(startNodeId,label);
-                relationship.setProperty(key, value);
+                final Relationship relationship = lookup.find();
+                deleteProperties(relationship);
+                properties.storeTo(relationship);
+                changed(relationship);
+            }
+        });
+    }
 
+    public void patchRelationshipProperties(final RelationshipLookup lookup, final PropertiesMap patch) {
+        inTransaction(new Runnable() {
+            public void run() {
+                final Relationship relationship = lookup.find();
+                if (patch.patch(relationship)) changed(relationship);
             }
         });
     }
 
-    public void removeRelationshipProperties(final Object startNodeId, final String label) {
+    public void removeRelationshipProperties(final RelationshipLookup lookup) {
         inTransaction(new Runnable() {
             public void run() {
-                final Edge relationship = getEdge(startNodeId,label);
+                final Relationship relationship = lookup.find();
                 deleteProperties(relationship);
+                changed(relationship);
+            }
+        });
+    }
 
+    public Object getRelationshipProperty(final RelationshipLookup lookup, final String key) {
+        return read(new Callable<Object>() {
+            public Object call() throws Exception {
+                return getProperty(lookup.find(), key);
             }
         });
     }
 
-    public boolean removeRelationshipProperty(final Object startNodeId, final String label, final String propertyKey) {
+    public void setRelationshipProperty(final RelationshipLookup lookup, final String key, final Object value) {
+        smallWrite(new Runnable() {
+            public void run() {
+                final Relationship relationship = lookup.find();
+                relationship.setProperty(key, value);
+                changed(relationship);
+            }
+        });
+    }
+
+    public boolean removeRelationshipProperty(final RelationshipLookup lookup, final String key) {
         return inTransaction(new Callable<Boolean>() {
             public Boolean call() throws Exception {
-                final Edge relationship = getEdge(startNodeId,label);
-                return relationship.removeProperty(propertyKey) != null;
+                final Relationship relationship = lookup.find();
+                final boolean removed = relationship.removeProperty(key) != null;
+                if (removed) changed(relationship);
+                return removed;
             }
         });
     }
 
+    /**
+     * The start node's outgoing relationship with the given label.
+     */
+    public RelationshipLookup relationship(final Object startNodeId, final String label) {
+        return new RelationshipLookup() {
+            Relationship find() {
+                return getEdge(startNodeId, label);
+            }
+        };
+    }
+
+    /**
+     * The relationship with the given id, looked up directly in the store without going through any of its nodes.
+     */
+    public RelationshipLookup relationshipById(final Object relationshipId) {
+        return new RelationshipLookup() {
+            Relationship find() {
+                return getRelationshipById(relationshipId);
+            }
+        };
+    }
+
+    private Relationship getRelationshipById(final Object relationshipId) {
+        try {
+            return neo.getRelationshipById(((Number) relationshipId).longValue());
+        } catch (org.neo4j.graphdb.NotFoundException e) {
+            throw new NotFoundException("relationship not found " + relationshipId);
+        }
+    }
+
+    private void changed(final Edge relationship) {
+        versions.relationshipChanged(relationship.getId(), relationship.getOutVertex().getId(), relationship.getInVertex().getId());
+    }
+
+    private void changed(final Relationship relationship) {
+        versions.relationshipChanged(relationship.getId(), relationship.getStartNode().getId(), relationship.getEndNode().getId());
+    }
+
+    private void deleted(final Relationship relationship) {
+        versions.relationshipDeleted(relationship.getId(), relationship.getStartNode().getId(), relationship.getEndNode().getId());
+    }
+
+    /**
+     * The entity tag of a node; it changes whenever the node, its properties or any of its relationships change.
+     */
+    public String nodeTag(final Object nodeId) {
+        return versions.nodeTag(nodeId);
+    }
+
+    public String relationshipTag(final Object relationshipId) {
+        return versions.relationshipTag(relationshipId);
+    }
 
     public <T> T inTransaction(final Callable<T> call) {
-        return DatabaseLocator.inTransaction(call);
+        versions.begin();
+        boolean success = false;
+        try {
+            final T result = DatabaseLocator.inTransaction(call);
+            success = true;
+            return result;
+        } finally {
+            versions.end(success);
+        }
     }
 
     public void inTransaction(final Runnable run) {
@@ -286,9 +835,28 @@ public class StorageActions {
         });
     }
 
+    /**
+     * Runs a small write in a transaction of its own or, with group commit enabled, in a transaction shared with
+     * concurrent writes (see {@link GroupCommitter}). Inside an enclosing transaction it joins that one.
+     */
+    private void smallWrite(final Runnable write) {
+        if (groupCommitter == null || DatabaseLocator.isInTransaction()) {
+            inTransaction(write);
+        } else {
+            groupCommitter.write(write);
+        }
+    }
+
+    /**
+     * Runs a call that only reads outside of any transaction, see {@link DatabaseLocator#read(Callable)}.
+     */
+    private <T> T read(final Callable<T> call) {
+        return DatabaseLocator.read(call);
+    }
+
     public Edge getRelationship(final Object startNodeId, final String label) {
         final Graph db = getGraphDatabase(null);
-        return inTransaction(new Callable<Edge>() {
+        return read(new Callable<Edge>() {
             public Edge call() throws Exception {
                 final Vertex startNode = db.getVertex(startNodeId);
                 for (Edge edge : startNode.getOutEdges()) {
@@ -299,7 +867,7 @@ public class StorageActions {
         });
     }
     public Object evaluate(final Object nodeId, final String code) {
-        return inTransaction(new Callable<Object>() {
+        return read(new Callable<Object>() {
             public Object call() throws Exception {
                 final GremlinEvaluator evaluator = new GremlinEvaluator();
                 evaluator.getVariables().put("$_g", graphdb);
@@ -308,4 +876,11 @@ public class StorageActions {
             }
         });
     }
+
+    /**
+     * Names the relationship an operation works on; it is looked up inside the operation's read or transaction.
+     */
+    public abstract class RelationshipLookup {
+        abstract Relationship find();
+    }
 }
@@ -0,0 +1,27 @@
+package com.tinkerpop.restling.domain;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * A single value, e.g. one property or the result of a gremlin evaluation.
+ */
+public class ValueRepresentation implements Representation {
+
+    private final Object value;
+
+    public ValueRepresentation(Object value) {
+        this.value = value;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void serializeTo(JsonGenerator generator) throws IOException {
+        if (!PropertiesMap.writeValue(generator, value)) {
+            JsonHelper.writeJsonTo(generator, value);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.tinkerpop.restling.domain;
+
+import java.io.IOException;
+
+/**
+ * Callback for elements produced while iterating the graph, e.g. to stream them to a client.
+ */
+public interface Visitor<T> {
+    void visit(T element) throws IOException;
+}
@@ -0,0 +1,164 @@
+package com.tinkerpop.restling.web;
+
+import com.tinkerpop.restling.domain.*;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Executes the body of a batch request: a JSON array of operations, each naming a storage operation in its "op" field,
+ * for example
+ * <pre>
+ * [{"op": "createNode", "properties": {"name": "neo"}},
+ *  {"op": "createNode"},
+ *  {"op": "createRelationship", "from": "{0}", "to": "{1}", "type": "KNOWS", "properties": {"since": 1999}},
+ *  {"op": "setNodeProperty", "node": "{1}", "key": "name", "value": "trinity"}]
+ * </pre>
+ * Nodes are referred to by id, by URI or as "{n}", the node created by operation n of the same batch. Operations are
+ * read from the stream and executed one by one, in order, inside a single transaction; the first failing operation
+ * rolls back the whole batch.
+ */
+class Batch {
+
+    private final StorageActions actions;
+    private final List<Representation> results = new ArrayList<Representation>();
+    private final List<Long> createdNodes = new ArrayList<Long>();
+
+    Batch(StorageActions actions) {
+        this.actions = actions;
+    }
+
+    /**
+     * @return one result per operation: the created node or relationship, or null for operations without a result
+     * @throws BatchOperationException wrapping the failure of the first operation that failed
+     */
+    List<Representation> execute(final RepresentationFormat format, final InputStream body) {
+        return actions.inTransaction(new Callable<List<Representation>>() {
+            public List<Representation> call() throws Exception {
+                final JsonParser parser = format.createJsonParser(body);
+                try {
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        throw new BatchOperationException(0, new PropertyValueException("Expected an array of operations"));
+                    }
+                    JsonToken token;
+                    while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                        final Map<String, Object> operation = JsonHelper.readMap(parser);
+                        try {
+                            results.add(execute(operation));
+                        } catch (RuntimeException e) {
+                            throw new BatchOperationException(results.size(), e);
+                        } catch (StartNodeSameAsEndNodeException e) {
+                            throw new BatchOperationException(results.size(), e);
+                        }
+                    }
+                    if (token != JsonToken.END_ARRAY) {
+                        throw new BatchOperationException(results.size(), new PropertyValueException("Expected an operation object"));
+                    }
+                } catch (IOException e) {
+                    throw new BatchOperationException(results.size(), new JsonParseRuntimeException(e));
+                } finally {
+                    parser.close();
+                }
+                return results;
+            }
+        });
+    }
+
+    private Representation execute(Map<String, Object> operation) throws StartNodeSameAsEndNodeException {
+        final String op = string(operation, "op");
+        Long createdNode = null;
+        final Representation result;
+        if ("createNode".equals(op)) {
+            final NodeRepresentation node = actions.createNode(properties(operation));
+            createdNode = (Long) node.getId();
+            result = node;
+        } else if ("createRelationship".equals(op)) {
+            result = actions.createRelationship(string(operation, "type"), node(operation, "from"), node(operation, "to"),
+                    properties(operation));
+        } else if ("setNodeProperties".equals(op)) {
+            actions.setNodeProperties(node(operation, "node"), properties(operation));
+            result = null;
+        } else if ("setNodeProperty".equals(op)) {
+            actions.setNodeProperty(node(operation, "node"), string(operation, "key"), value(operation));
+            result = null;
+        } else if ("removeNodeProperties".equals(op)) {
+            actions.removeNodeProperties(node(operation, "node"));
+            result = null;
+        } else if ("removeNodeProperty".equals(op)) {
+            actions.removeNodeProperty(node(operation, "node"), string(operation, "key"));
+            result = null;
+        } else if ("deleteNode".equals(op)) {
+            if (Boolean.TRUE.equals(operation.get("cascade"))) {
+                actions.deleteNodeCascading(node(operation, "node"));
+            } else {
+                actions.deleteNode(node(operation, "node"));
+            }
+            result = null;
+        } else if ("setRelationshipProperties".equals(op)) {
+            actions.setRelationshipProperties(node(operation, "node"), string(operation, "type"), properties(operation));
+            result = null;
+        } else if ("setRelationshipProperty".equals(op)) {
+            actions.setRelationshipProperty(node(operation, "node"), string(operation, "type"), string(operation, "key"),
+                    value(operation));
+            result = null;
+        } else if ("removeRelationshipProperties".equals(op)) {
+            actions.removeRelationshipProperties(node(operation, "node"), string(operation, "type"));
+            result = null;
+        } else if ("removeRelationshipProperty".equals(op)) {
+            actions.removeRelationshipProperty(node(operation, "node"), string(operation, "type"), string(operation, "key"));
+            result = null;
+        } else if ("removeRelationship".equals(op)) {
+            actions.removeRelationship(node(operation, "node"), string(operation, "type"));
+            result = null;
+        } else {
+            throw new PropertyValueException("Unknown operation " + op);
+        }
+        createdNodes.add(createdNode);
+        return result;
+    }
+
+    private static String string(Map<String, Object> operation, String field) {
+        final Object value = operation.get(field);
+        if (!(value instanceof String)) throw new PropertyValueException("Expected a string for '" + field + "'");
+        return (String) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PropertiesMap properties(Map<String, Object> operation) {
+        final Object properties = operation.get("properties");
+        if (properties == null) return new PropertiesMap(Collections.<String, Object> emptyMap());
+        if (!(properties instanceof Map)) throw new PropertyValueException("Expected an object for 'properties'");
+        return new PropertiesMap((Map<String, Object>) properties);
+    }
+
+    private static Object value(Map<String, Object> operation) {
+        final Object value = operation.get("value");
+        if (value == null) throw new PropertyValueException("Missing 'value'");
+        return PropertiesMap.toInternalType(value);
+    }
+
+    private Long node(Map<String, Object> operation, String field) {
+        final Object reference = operation.get(field);
+        if (reference instanceof Number) return ((Number) reference).longValue();
+        if (!(reference instanceof String)) throw new PropertyValueException("Missing node reference '" + field + "'");
+        final String text = (String) reference;
+        try {
+            if (text.startsWith("{") && text.endsWith("}")) {
+                final int index = Integer.parseInt(text.substring(1, text.length() - 1));
+                final Long nodeId = index >= 0 && index < createdNodes.size() ? createdNodes.get(index) : null;
+                if (nodeId == null) throw new PropertyValueException("Operation " + index + " did not create a node");
+                return nodeId;
+            }
+            return Long.parseLong(text.substring(text.lastIndexOf('/') + 1));
+        } catch (NumberFormatException e) {
+            throw new PropertyValueException("Invalid node reference " + text);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.tinkerpop.restling.web;
+
+/**
+ * The failure of one operation of a batch, which rolled back the whole batch.
+ */
+@SuppressWarnings("serial")
+class BatchOperationException extends RuntimeException {
+
+    private final int index;
+
+    BatchOperationException(int index, Exception cause) {
+        super("Batch operation " + index + " failed: " + cause.getMessage(), cause);
+        this.index = index;
+    }
+
+    int getIndex() {
+        return index;
+    }
+}
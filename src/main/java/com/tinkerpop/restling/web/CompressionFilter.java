@@ -0,0 +1,173 @@
+package com.tinkerpop.restling.web;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+import javax.ws.rs.core.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses response entities with gzip or deflate when the client asks for it in Accept-Encoding. Entities whose
+ * size is known and below the minimum size (small property reads) are sent as they are; streamed entities such as
+ * relationship lists have no known size and are always compressed, on the fly.
+ * <p/>
+ * The minimum size and the deflate level are read from the system properties {@value #MIN_SIZE_PROPERTY} and
+ * {@value #LEVEL_PROPERTY}.
+ */
+public class CompressionFilter implements ContainerResponseFilter {
+
+    public static final String MIN_SIZE_PROPERTY = "restling.compression.minSize";
+    public static final String LEVEL_PROPERTY = "restling.compression.level";
+
+    static final int DEFAULT_MIN_SIZE = 1024;
+
+    private final int minSize;
+    private final int level;
+
+    public CompressionFilter() {
+        this(Integer.getInteger(MIN_SIZE_PROPERTY, DEFAULT_MIN_SIZE),
+                Integer.getInteger(LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION));
+    }
+
+    CompressionFilter(int minSize, int level) {
+        this.minSize = minSize;
+        this.level = level;
+    }
+
+    public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+        final Object entity = response.getEntity();
+        if (entity == null || response.getHttpHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return response;
+        }
+        if (entity instanceof byte[] && ((byte[]) entity).length < minSize) {
+            return response;
+        }
+        final Encoding encoding = Encoding.forAcceptEncoding(request.getHeaderValue(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            return response;
+        }
+        response.getHttpHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        response.getHttpHeaders().add(HttpHeaders.CONTENT_ENCODING, encoding.token);
+        final Object vary = response.getHttpHeaders().getFirst("Vary");
+        if (vary == null || !vary.toString().contains(HttpHeaders.ACCEPT_ENCODING)) {
+            response.getHttpHeaders().add("Vary", HttpHeaders.ACCEPT_ENCODING);
+        }
+        response.setContainerResponseWriter(new CompressingWriter(response.getContainerResponseWriter(), encoding, level));
+        return response;
+    }
+
+    enum Encoding {
+        GZIP("gzip") {
+            DeflaterOutputStream wrap(OutputStream out, final int level) throws IOException {
+                return new GZIPOutputStream(out) {
+                    {
+                        def.setLevel(level);
+                    }
+
+                    @Override
+                    public void finish() throws IOException {
+                        super.finish();
+                        def.end();
+                    }
+                };
+            }
+        },
+        DEFLATE("deflate") {
+            DeflaterOutputStream wrap(OutputStream out, int level) {
+                return new DeflaterOutputStream(out, new Deflater(level)) {
+                    @Override
+                    public void finish() throws IOException {
+                        super.finish();
+                        def.end();
+                    }
+                };
+            }
+        };
+
+        final String token;
+
+        private Encoding(String token) {
+            this.token = token;
+        }
+
+        abstract DeflaterOutputStream wrap(OutputStream out, int level) throws IOException;
+
+        /**
+         * Picks the accepted encoding with the highest quality, preferring gzip on ties; an encoding with q=0 is refused.
+         *
+         * @return null if neither gzip nor deflate is acceptable
+         */
+        static Encoding forAcceptEncoding(String acceptEncoding) {
+            if (acceptEncoding == null) return null;
+            Encoding best = null;
+            float bestQuality = 0;
+            for (String part : acceptEncoding.split(",")) {
+                final String[] params = part.split(";");
+                final Encoding candidate = forToken(params[0].trim());
+                if (candidate == null) continue;
+                final float quality = quality(params);
+                if (quality <= 0) continue;
+                if (quality > bestQuality || (quality == bestQuality && candidate == GZIP)) {
+                    best = candidate;
+                    bestQuality = quality;
+                }
+            }
+            return best;
+        }
+
+        private static Encoding forToken(String token) {
+            for (Encoding encoding : values()) {
+                if (encoding.token.equalsIgnoreCase(token)) return encoding;
+            }
+            return null;
+        }
+
+        private static float quality(String[] params) {
+            for (int i = 1; i < params.length; i++) {
+                final String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * Hands the container a compressing stream in place of its own; the length is always unknown up front.
+     */
+    static class CompressingWriter implements ContainerResponseWriter {
+        private final ContainerResponseWriter writer;
+        private final Encoding encoding;
+        private final int level;
+        private DeflaterOutputStream out;
+
+        CompressingWriter(ContainerResponseWriter writer, Encoding encoding, int level) {
+            this.writer = writer;
+            this.encoding = encoding;
+            this.level = level;
+        }
+
+        public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) throws IOException {
+            out = encoding.wrap(writer.writeStatusAndHeaders(-1, response), level);
+            return out;
+        }
+
+        public void finish() throws IOException {
+            if (out != null) {
+                out.finish();
+            }
+            writer.finish();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.tinkerpop.restling.web;
+
+import com.tinkerpop.restling.domain.JsonParseRuntimeException;
+import com.tinkerpop.restling.domain.PropertiesMap;
+import com.tinkerpop.restling.domain.PropertyValueException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+/**
+ * The payload of a create relationship request, <code>{"to": nodeUri, "type": label, "properties": {...}}</code>,
+ * read field by field from the request stream. Unknown fields are skipped.
+ */
+class RelationshipRequest {
+    final String to;
+    final String type;
+    final PropertiesMap properties;
+
+    private RelationshipRequest(String to, String type, PropertiesMap properties) {
+        this.to = to;
+        this.type = type;
+        this.properties = properties;
+    }
+
+    static RelationshipRequest read(RepresentationFormat format, InputStream in) {
+        try {
+            final JsonParser parser = format.createJsonParser(in);
+            try {
+                return read(parser);
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new JsonParseRuntimeException(e);
+        }
+    }
+
+    private static RelationshipRequest read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new PropertyValueException("Expected an object but got " + parser.getCurrentToken());
+        }
+        String to = null;
+        String type = null;
+        PropertiesMap properties = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ("to".equals(field)) {
+                to = text(parser, value, field);
+            } else if ("type".equals(field)) {
+                type = text(parser, value, field);
+            } else if ("properties".equals(field)) {
+                properties = value == JsonToken.VALUE_NULL ? null : PropertiesMap.read(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (to == null || type == null) {
+            throw new PropertyValueException("Relationship requires 'to' and 'type'");
+        }
+        if (properties == null) {
+            properties = new PropertiesMap(Collections.<String, Object> emptyMap());
+        }
+        return new RelationshipRequest(to, type, properties);
+    }
+
+    private static String text(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            throw new PropertyValueException("Expected a string for '" + field + "' but got " + token);
+        }
+        return parser.getText();
+    }
+}
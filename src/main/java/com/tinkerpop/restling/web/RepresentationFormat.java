@@ -0,0 +1,86 @@
+package com.tinkerpop.restling.web;
+
+import com.tinkerpop.restling.domain.JsonHelper;
+import com.tinkerpop.restling.domain.PropertiesMap;
+import com.tinkerpop.restling.domain.Representation;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.smile.SmileFactory;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * The wire formats the web service speaks. Smile is Jackson's binary JSON encoding; it carries the same
+ * representations as JSON, so both are produced by the same generator/parser code.
+ */
+public enum RepresentationFormat {
+    JSON(MediaType.APPLICATION_JSON_TYPE, JsonHelper.jsonFactory()),
+    SMILE(MediaType.valueOf(RepresentationFormat.APPLICATION_SMILE), new SmileFactory());
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final MediaType mediaType;
+    private final JsonFactory factory;
+
+    private RepresentationFormat(MediaType mediaType, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public byte[] entity(Representation representation) {
+        return JsonHelper.createBytesFrom(factory, representation);
+    }
+
+    public JsonGenerator createJsonGenerator(OutputStream out) throws IOException {
+        return JsonHelper.createJsonGenerator(factory, out);
+    }
+
+    public Map<String, Object> readMap(InputStream in) {
+        return JsonHelper.readMap(factory, in);
+    }
+
+    public PropertiesMap readProperties(InputStream in) {
+        return JsonHelper.readProperties(factory, in);
+    }
+
+    public PropertiesMap readPropertiesPatch(InputStream in) {
+        return JsonHelper.readPropertiesPatch(factory, in);
+    }
+
+    public Object readSingleValue(InputStream in) {
+        return JsonHelper.readPropertyValue(factory, in);
+    }
+
+    public JsonParser createJsonParser(InputStream in) throws IOException {
+        return factory.createJsonParser(in);
+    }
+
+    /**
+     * Picks the first format the client accepts, in its order of preference. Wildcards and missing headers get JSON.
+     */
+    public static RepresentationFormat forAccept(HttpHeaders headers) {
+        if (headers == null) return JSON;
+        for (MediaType accepted : headers.getAcceptableMediaTypes()) {
+            if (accepted.isWildcardType()) return JSON;
+            if (SMILE.mediaType.isCompatible(accepted) && !accepted.isWildcardSubtype()) return SMILE;
+            if (JSON.mediaType.isCompatible(accepted)) return JSON;
+        }
+        return JSON;
+    }
+
+    public static RepresentationFormat forContentType(HttpHeaders headers) {
+        if (headers == null || headers.getMediaType() == null) return JSON;
+        return SMILE.mediaType.isCompatible(headers.getMediaType()) ? SMILE : JSON;
+    }
+}
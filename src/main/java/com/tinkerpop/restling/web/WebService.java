@@ -1,24 +1,52 @@
 package com.tinkerpop.restling.web;
 
 import com.tinkerpop.restling.domain.*;
+import com.tinkerpop.restling.domain.StorageActions.RelationshipLookup;
+import org.codehaus.jackson.JsonGenerator;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @Path("/")
 public class WebService {
 
+    static final String MAX_NEIGHBORHOOD_DEPTH_PROPERTY = "restling.neighborhood.maxDepth";
+
+    static final int DEFAULT_MAX_PATH_DEPTH = 6;
+    static final int DEFAULT_MAX_NEIGHBORHOOD_DEPTH = 6;
+
     private final StorageActions actions;
+    private final UriInfo uriInfo;
+
+    @Context
+    private HttpHeaders headers;
+
+    @Context
+    private Request request;
 
     public WebService(@Context UriInfo uriInfo) {
+        this.uriInfo = uriInfo;
         this.actions = new StorageActions(uriInfo.getBaseUri());
     }
 
+    WebService(UriInfo uriInfo, HttpHeaders headers, Request request) {
+        this(uriInfo);
+        this.headers = headers;
+        this.request = request;
+    }
+
     /**
      * This is an awful hack. Because Jersey can't seem to understand that empty
      * POSTs should have no media type (nor can any client really), it assumes
@@ -36,13 +64,13 @@ public class WebService {
      */
     @POST
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
     public Response createEmptyNode(String body) {
         if (!isNullOrEmpty(body)) {
             return Response.status(Status.BAD_REQUEST).build();
         }
         NodeRepresentation noderep = actions.createNode(new PropertiesMap(Collections.<String, Object> emptyMap()));
-        return addContentLengthHeader(Response.created(noderep.selfUri()).entity(JsonHelper.createJsonFrom(noderep.serialize()))).build();
+        return withEntity(Response.created(noderep.selfUri()), noderep).build();
     }
 
     private boolean isNullOrEmpty(String str) {
@@ -50,41 +78,65 @@ public class WebService {
     }
 
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response createNode(String json) {
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response createNode(InputStream body) {
         PropertiesMap properties;
         try {
-            properties = new PropertiesMap(JsonHelper.jsonToMap(json));
+            properties = requestFormat().readProperties(body);
         } catch (PropertyValueException e) {
             return Response.status(Status.BAD_REQUEST).build();
         }
         NodeRepresentation noderep = actions.createNode(properties);
-        return addContentLengthHeader(
-                Response.created(noderep.selfUri()).entity(JsonHelper.createJsonFrom(noderep.serialize())).header(HttpHeaders.CONTENT_LENGTH,
-                        String.valueOf(JsonHelper.createJsonFrom(noderep.serialize()).length()))).build();
+        return withEntity(Response.created(noderep.selfUri()), noderep).build();
     }
 
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
     @Path("{nodeId}")
-    public Response getNode(@PathParam("nodeId") Long nodeId) {
+    public Response getNode(@PathParam("nodeId") Long nodeId, @QueryParam("fields") CommaSeparatedList fields) {
+        final EntityTag tag = entityTag(actions.nodeTag(nodeId), fields);
+        final ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return tagged(notModified, tag).build();
+        }
         NodeRepresentation noderep;
         try {
-            noderep = actions.retrieveNode(nodeId);
+            noderep = actions.retrieveNode(nodeId, fields);
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
-        return addContentLengthHeader(Response.ok(noderep.selfUri()).entity(JsonHelper.createJsonFrom(noderep.serialize()))).build();
+        return withEntity(tagged(Response.ok(), tag), noderep).build();
+    }
+
+    /**
+     * Reads many nodes in one request, e.g. nodes?ids=1,2,3; ids no node exists for are listed as missing.
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    @Path("nodes")
+    public Response getNodes(@QueryParam("ids") CommaSeparatedList ids, @QueryParam("fields") CommaSeparatedList fields) {
+        if (ids == null) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        final List<Long> nodeIds = new ArrayList<Long>(ids.size());
+        try {
+            for (String id : ids) {
+                nodeIds.add(Long.valueOf(id));
+            }
+        } catch (NumberFormatException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        return withEntity(Response.ok(), actions.retrieveNodes(nodeIds, fields)).build();
     }
 
     @PUT
     @Path("{nodeId}/properties")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response setNodeProperties(@PathParam("nodeId") Long nodeId, String json) {
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response setNodeProperties(@PathParam("nodeId") Long nodeId, InputStream body) {
         PropertiesMap properties;
         try {
-            properties = new PropertiesMap(JsonHelper.jsonToMap(json));
+            properties = requestFormat().readProperties(body);
         } catch (PropertyValueException e) {
             return Response.status(Status.BAD_REQUEST).build();
         }
@@ -96,27 +148,61 @@ public class WebService {
         return Response.ok().build();
     }
 
+    /**
+     * Merges the supplied properties into the node's; a null value removes its key, keys not supplied stay as they are.
+     */
+    @PATCH
+    @Path("{nodeId}/properties")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response patchNodeProperties(@PathParam("nodeId") Long nodeId, InputStream body) {
+        PropertiesMap patch;
+        try {
+            patch = requestFormat().readPropertiesPatch(body);
+        } catch (PropertyValueException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        try {
+            actions.patchNodeProperties(nodeId, patch);
+        } catch (NotFoundException e) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        return Response.ok().build();
+    }
+
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
     @Path("{nodeId}/properties")
     public Response getNodeProperties(@PathParam("nodeId") Long nodeId) {
+        final EntityTag tag = entityTag(actions.nodeTag(nodeId));
+        final ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return tagged(notModified, tag).build();
+        }
         try {
             PropertiesMap properties = actions.getNodeProperties(nodeId);
             if (properties.isEmpty()) {
-                return Response.noContent().build();
+                return tagged(Response.noContent(), tag).build();
             }
-            return addContentLengthHeader(Response.ok(JsonHelper.createJsonFrom(properties.serialize()))).build();
+            return withEntity(tagged(Response.ok(), tag), properties).build();
 
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
     }
 
+    /**
+     * Deletes a node. A node that still has relationships is only deleted with cascade=true, which deletes its
+     * relationships along with it.
+     */
     @DELETE
     @Path("{nodeId}")
-    public Response deleteNode(@PathParam("nodeId") Long id) {
+    public Response deleteNode(@PathParam("nodeId") Long id, @QueryParam("cascade") boolean cascade) {
         try {
-            actions.deleteNode(id);
+            if (cascade) {
+                actions.deleteNodeCascading(id);
+            } else {
+                actions.deleteNode(id);
+            }
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         } catch (CascadingDeleteException e) {
@@ -127,10 +213,10 @@ public class WebService {
 
     @PUT
     @Path("{nodeId}/properties/{key}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response setNodeProperty(@PathParam("nodeId") Long id, @PathParam("key") String key, String json) {
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response setNodeProperty(@PathParam("nodeId") Long id, @PathParam("key") String key, InputStream body) {
         try {
-            actions.setNodeProperty(id, key, JsonHelper.jsonToSingleValue(json));
+            actions.setNodeProperty(id, key, requestFormat().readSingleValue(body));
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
@@ -141,11 +227,11 @@ public class WebService {
 
     @GET
     @Path("{nodeId}/properties/{key}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
     public Response getNodeProperty(@PathParam("nodeId") Long nodeId, @PathParam("key") String key) {
         try {
             Object value = actions.getNodeProperty(nodeId, key);
-            return Response.ok(JsonHelper.createJsonFrom(value)).build();
+            return withEntity(Response.ok(), new ValueRepresentation(value)).build();
         } catch (PropertyValueException e) {
             return Response.status(Status.NOT_FOUND).build();
         } catch (NotFoundException e) {
@@ -165,24 +251,18 @@ public class WebService {
     }
 
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
     @Path("{nodeId}/relationships")
-    public Response createRelationship(@PathParam("nodeId") Long startNodeId, String json) {
+    public Response createRelationship(@PathParam("nodeId") Long startNodeId, InputStream body) {
         Long endNodeId;
         String type;
         PropertiesMap properties;
         try {
-            Map<String, Object> payload = JsonHelper.jsonToMap(json);
-            endNodeId = getNodeIdFromUri((String) payload.get("to"));
-            type = ((String) payload.get("type")).toString();
-            @SuppressWarnings("unchecked")
-            Map<String, Object> props = (Map<String, Object>) payload.get("properties");
-            if (props != null) {
-                properties = new PropertiesMap(props);
-            } else {
-                properties = new PropertiesMap(Collections.<String, Object> emptyMap());
-            }
+            RelationshipRequest request = RelationshipRequest.read(requestFormat(), body);
+            endNodeId = getNodeIdFromUri(request.to);
+            type = request.type;
+            properties = request.properties;
         } catch (PropertyValueException e) {
             return Response.status(Status.BAD_REQUEST).build();
         }
@@ -196,7 +276,7 @@ public class WebService {
         } catch (StartNodeSameAsEndNodeException e) {
             return Response.status(Status.BAD_REQUEST).build();
         }
-        return addContentLengthHeader(Response.created(relationship.selfUri()).entity(JsonHelper.createJsonFrom(relationship.serialize()))).build();
+        return withEntity(Response.created(relationship.selfUri()), relationship).build();
     }
 
     @DELETE
@@ -212,136 +292,489 @@ public class WebService {
 
     @GET
     @Path("{nodeId}/relationships/{label}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getRelationship(@PathParam("nodeId") Long nodeId,@PathParam("label") String label) {
-        RelationshipRepresentation relrep;
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationship(@PathParam("nodeId") Long nodeId,@PathParam("label") String label,
+            @QueryParam("fields") CommaSeparatedList fields) {
+        return getRelationship(actions.relationship(nodeId, label), actions.nodeTag(nodeId), fields);
+    }
+
+    @GET
+    @Path("{nodeId}/relationships/{label}/properties")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationshipProperties(@PathParam("nodeId") Long nodeId,@PathParam("label") String label) {
+        return getRelationshipProperties(actions.relationship(nodeId, label), actions.nodeTag(nodeId));
+    }
+
+    @GET
+    @Path("{nodeId}/relationships/{label}/properties/{key}")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationshipProperty(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, @PathParam("key") String key) {
+        return getRelationshipProperty(actions.relationship(nodeId, label), key);
+    }
+
+    private Long getNodeIdFromUri(String uri) {
+        return Long.parseLong(uri.substring(uri.lastIndexOf("/") + 1));
+    }
+
+    private ResponseBuilder withEntity(ResponseBuilder responseBuilder, Representation representation) {
+        final RepresentationFormat format = responseFormat();
+        final byte[] entity = format.entity(representation);
+        return responseBuilder.entity(entity).type(format.getMediaType())
+                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(entity.length));
+    }
+
+    /**
+     * The entity tag of the body sent for this request. Besides the element's version stamp it covers everything else
+     * that changes the bytes of the body: the response format, the content coding negotiated from Accept-Encoding
+     * (see {@link CompressionFilter}) and the given variant, such as the projected fields or the page.
+     */
+    private EntityTag entityTag(String version, Object... variant) {
+        final StringBuilder tag = new StringBuilder(version).append('-').append(responseFormat().name().toLowerCase());
+        final CompressionFilter.Encoding encoding = CompressionFilter.Encoding.forAcceptEncoding(acceptEncoding());
+        if (encoding != null) {
+            tag.append('-').append(encoding.token);
+        }
+        try {
+            for (Object part : variant) {
+                tag.append('-').append(URLEncoder.encode(String.valueOf(part), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        return new EntityTag(tag.toString());
+    }
+
+    /**
+     * Tags the response and names the request headers its tag and body vary with besides the element itself, so
+     * caches keep the JSON and Smile, plain and compressed representations apart.
+     */
+    private static ResponseBuilder tagged(ResponseBuilder response, EntityTag tag) {
+        return response.tag(tag).header("Vary", HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private String acceptEncoding() {
+        final List<String> values = headers == null ? null : headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (values == null || values.isEmpty()) return null;
+        final StringBuilder acceptEncoding = new StringBuilder();
+        for (String value : values) {
+            if (acceptEncoding.length() > 0) acceptEncoding.append(',');
+            acceptEncoding.append(value);
+        }
+        return acceptEncoding.toString();
+    }
+
+    /**
+     * Answers If-None-Match requests from the node's version stamp alone, before anything is read from the database.
+     *
+     * @return a 304 response builder if the client's copy is current, null otherwise
+     */
+    private ResponseBuilder evaluatePreconditions(EntityTag tag) {
+        return request == null ? null : request.evaluatePreconditions(tag);
+    }
+
+    private RepresentationFormat responseFormat() {
+        return RepresentationFormat.forAccept(headers);
+    }
+
+    private RepresentationFormat requestFormat() {
+        return RepresentationFormat.forContentType(headers);
+    }
+
+    @DELETE
+    @Path("{nodeId}/relationships/{label}")
+    public Response removeRelationship(@PathParam("nodeId") Long nodeId,@PathParam("label") String label) {
+        return removeRelationship(actions.relationship(nodeId, label));
+    }
+
+    @GET
+    @Path("{nodeId}/relationships/dir/{dir}")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationships(@PathParam("nodeId") Long nodeId, @PathParam("dir") RelationshipDirection direction,
+            @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+            @QueryParam("fields") CommaSeparatedList fields) {
+        return getRelationships(nodeId, direction, new AmpersandSeparatedList(), limit, cursor, fields);
+    }
+    @GET
+    @Path("{nodeId}/relationships/{types}/dir/{dir}")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationships(@PathParam("nodeId") Long nodeId, @PathParam("dir") RelationshipDirection direction,
+            @PathParam("types") AmpersandSeparatedList types, @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+            @QueryParam("fields") CommaSeparatedList fields) {
+        if (limit != null && limit <= 0) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        final EntityTag tag = entityTag(actions.nodeTag(nodeId), fields, limit, cursor);
+        final ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return tagged(notModified, tag).build();
+        }
+        if (limit != null) {
+            return getRelationshipsPage(nodeId, direction, types, fields, limit, cursor, tag);
+        }
         try {
-            relrep = actions.retrieveRelationship(nodeId,label);
+            actions.verifyNodeExists(nodeId);
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
-        return addContentLengthHeader(Response.ok().entity(JsonHelper.createJsonFrom(relrep.serialize()))).build();
+        return tagged(Response.ok(streamRelationships(nodeId, direction, types, fields), responseFormat().getMediaType()), tag).build();
     }
 
-    @GET
-    @Path("{nodeId}/relationships/{label}/properties")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getRelationshipProperties(@PathParam("nodeId") Long nodeId,@PathParam("label") String label) {
+    /**
+     * One page of a relationship listing. The page is bounded by the limit, so it is collected before writing; that
+     * way the cursor for the next page is known in time for the Link header.
+     */
+    private Response getRelationshipsPage(Long nodeId, RelationshipDirection direction, List<String> types,
+                                          List<String> fields, int limit, String cursor, EntityTag tag) {
+        final List<RelationshipRepresentation> page = new ArrayList<RelationshipRepresentation>(Math.min(limit, 1024));
+        final String next;
         try {
-            PropertiesMap properties = actions.getRelationshipProperties(nodeId,label);
-            if (properties.isEmpty()) {
-                return Response.noContent().build();
+            next = actions.visitRelationships(nodeId, direction, types, fields, limit, cursor, new Visitor<RelationshipRepresentation>() {
+                public void visit(RelationshipRepresentation relationship) {
+                    page.add(relationship);
+                }
+            });
+        } catch (NotFoundException e) {
+            return Response.status(Status.NOT_FOUND).build();
+        } catch (InvalidCursorException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        final ResponseBuilder response = withEntity(tagged(Response.ok(), tag), new ListRepresentation(page));
+        if (next != null) {
+            response.header("Link", "<" + uriInfo.getRequestUriBuilder().replaceQueryParam("cursor", next).build() + ">; rel=\"next\"");
+        }
+        return response.build();
+    }
+
+    /**
+     * Writes the relationships straight from the node's edge iterator to the response. No Content-Length is set, so
+     * the container sends the list chunked and never holds it in memory as a whole.
+     */
+    private StreamingOutput streamRelationships(final Long nodeId, final RelationshipDirection direction, final List<String> types,
+                                                final List<String> fields) {
+        final RepresentationFormat format = responseFormat();
+        return new StreamingOutput() {
+            public void write(OutputStream output) throws IOException {
+                final JsonGenerator generator = format.createJsonGenerator(output);
+                generator.writeStartArray();
+                try {
+                    actions.visitRelationships(nodeId, direction, types, fields, new Visitor<RelationshipRepresentation>() {
+                        public void visit(RelationshipRepresentation relationship) throws IOException {
+                            relationship.serializeTo(generator);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                    throw e;
+                }
+                generator.writeEndArray();
+                generator.flush();
             }
-            return addContentLengthHeader(Response.ok(JsonHelper.createJsonFrom(properties.serialize()))).build();
+        };
+    }
 
+    /**
+     * The number of the node's relationships in the direction, in total and per type; with types given, only
+     * relationships of those types are counted.
+     */
+    @GET
+    @Path("{nodeId}/degree/{dir}")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getDegree(@PathParam("nodeId") Long nodeId, @PathParam("dir") RelationshipDirection direction,
+            @QueryParam("types") CommaSeparatedList types) {
+        final EntityTag tag = entityTag(actions.nodeTag(nodeId));
+        final ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return tagged(notModified, tag).build();
+        }
+        final Map<String, Long> counts;
+        try {
+            counts = actions.countRelationships(nodeId, direction, types == null ? new CommaSeparatedList() : types);
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
+        long total = 0;
+        for (Long count : counts.values()) {
+            total += count;
+        }
+        final Map<String, Object> degree = new LinkedHashMap<String, Object>();
+        degree.put("total", total);
+        degree.put("types", counts);
+        return withEntity(tagged(Response.ok(), tag), new ValueRepresentation(degree)).build();
     }
 
+    /**
+     * Expands the node's neighborhood and returns its nodes and relationships, each once. Every hop parameter
+     * ("dir" or "dir:TYPE1,TYPE2") adds one hop with its own direction and types; without hop parameters the
+     * neighborhood is expanded to the given depth (default 1) following dir and types on every hop. The whole
+     * expansion runs in one read, so more than {@value #MAX_NEIGHBORHOOD_DEPTH_PROPERTY} hops (default
+     * {@value #DEFAULT_MAX_NEIGHBORHOOD_DEPTH}) are refused.
+     */
     @GET
-    @Path("{nodeId}/relationships/{label}/properties/{key}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getRelationshipProperty(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, @PathParam("key") String key) {
+    @Path("{nodeId}/neighborhood")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getNeighborhood(@PathParam("nodeId") Long nodeId, @QueryParam("hop") List<String> hopParams,
+            @QueryParam("depth") @DefaultValue("1") int depth,
+            @QueryParam("dir") @DefaultValue("all") RelationshipDirection direction,
+            @QueryParam("types") CommaSeparatedList types, @QueryParam("fields") CommaSeparatedList fields) {
+        final int maxDepth = Integer.getInteger(MAX_NEIGHBORHOOD_DEPTH_PROPERTY, DEFAULT_MAX_NEIGHBORHOOD_DEPTH);
+        final List<Hop> hops = new ArrayList<Hop>();
+        if (hopParams != null && !hopParams.isEmpty()) {
+            if (hopParams.size() > maxDepth) {
+                return Response.status(Status.BAD_REQUEST).build();
+            }
+            try {
+                for (String hop : hopParams) {
+                    hops.add(Hop.valueOf(hop));
+                }
+            } catch (IllegalArgumentException e) {
+                return Response.status(Status.BAD_REQUEST).build();
+            }
+        } else {
+            if (depth <= 0 || depth > maxDepth) {
+                return Response.status(Status.BAD_REQUEST).build();
+            }
+            for (int i = 0; i < depth; i++) {
+                hops.add(new Hop(direction, types));
+            }
+        }
         try {
-            Object value = actions.getRelationshipProperty(nodeId,label, key);
-            return addContentLengthHeader(Response.ok().entity(JsonHelper.createJsonFrom(value))).build();
-        } catch (PropertyValueException e) {
+            return withEntity(Response.ok(), actions.expand(nodeId, hops, fields)).build();
+        } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * Finds a shortest path from the node to another one, of at most maxDepth relationships that follow dir and are
+     * of one of the given types (of any type if none are given).
+     */
+    @GET
+    @Path("{nodeId}/shortestpath/{toNodeId}")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getShortestPath(@PathParam("nodeId") Long nodeId, @PathParam("toNodeId") Long toNodeId,
+            @QueryParam("maxDepth") @DefaultValue("" + DEFAULT_MAX_PATH_DEPTH) int maxDepth,
+            @QueryParam("dir") @DefaultValue("all") RelationshipDirection direction,
+            @QueryParam("types") CommaSeparatedList types) {
+        if (maxDepth <= 0) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        final PathRepresentation path;
+        try {
+            path = actions.findShortestPath(nodeId, toNodeId, maxDepth, direction,
+                    types == null ? new CommaSeparatedList() : types);
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
+        if (path == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        return withEntity(Response.ok(), path).build();
     }
 
-    private Long getNodeIdFromUri(String uri) {
-        return Long.parseLong(uri.substring(uri.lastIndexOf("/") + 1));
+    @PUT
+    @Path("{nodeId}/relationships/{label}/properties")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response setRelationshipProperties(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, InputStream body) {
+        return setRelationshipProperties(actions.relationship(nodeId, label), body);
     }
 
-    private ResponseBuilder addContentLengthHeader(ResponseBuilder responseBuilder) {
-        return responseBuilder.header(HttpHeaders.CONTENT_LENGTH, String.valueOf(responseBuilder.clone().build().getEntity().toString().length()));
+    @PATCH
+    @Path("{nodeId}/relationships/{label}/properties")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response patchRelationshipProperties(@PathParam("nodeId") Long nodeId, @PathParam("label") String label,
+                                                InputStream body) {
+        return patchRelationshipProperties(actions.relationship(nodeId, label), body);
+    }
+
+    @PUT
+    @Path("{nodeId}/relationships/{label}/properties/{key}")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response setRelationshipProperty(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, @PathParam("key") String key, InputStream body) {
+        return setRelationshipProperty(actions.relationship(nodeId, label), key, body);
     }
 
     @DELETE
-    @Path("{nodeId}/relationships/{label}")
-    public Response removeRelationship(@PathParam("nodeId") Long nodeId,@PathParam("label") String label) {
+    @Path("{nodeId}/relationships/{label}/properties")
+    public Response removeRelationshipProperties(@PathParam("nodeId") Long nodeId,@PathParam("label") String label) {
+        return removeRelationshipProperties(actions.relationship(nodeId, label));
+    }
+
+    @DELETE
+    @Path("{nodeId}/relationships/{label}/properties/{key}")
+    public Response removeRelationshipProperty(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, @PathParam("key") String propertyKey) {
+        return removeRelationshipProperty(actions.relationship(nodeId, label), propertyKey);
+    }
+
+    /**
+     * Reads a relationship by its id, the address its representation advertises as self.
+     */
+    @GET
+    @Path("relationships/{relId}")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationshipById(@PathParam("relId") Long relationshipId,
+            @QueryParam("fields") CommaSeparatedList fields) {
+        return getRelationship(actions.relationshipById(relationshipId), actions.relationshipTag(relationshipId), fields);
+    }
+
+    @DELETE
+    @Path("relationships/{relId}")
+    public Response removeRelationshipById(@PathParam("relId") Long relationshipId) {
+        return removeRelationship(actions.relationshipById(relationshipId));
+    }
+
+    @GET
+    @Path("relationships/{relId}/properties")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationshipPropertiesById(@PathParam("relId") Long relationshipId) {
+        return getRelationshipProperties(actions.relationshipById(relationshipId), actions.relationshipTag(relationshipId));
+    }
+
+    @PUT
+    @Path("relationships/{relId}/properties")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response setRelationshipPropertiesById(@PathParam("relId") Long relationshipId, InputStream body) {
+        return setRelationshipProperties(actions.relationshipById(relationshipId), body);
+    }
+
+    @PATCH
+    @Path("relationships/{relId}/properties")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response patchRelationshipPropertiesById(@PathParam("relId") Long relationshipId, InputStream body) {
+        return patchRelationshipProperties(actions.relationshipById(relationshipId), body);
+    }
+
+    @DELETE
+    @Path("relationships/{relId}/properties")
+    public Response removeRelationshipPropertiesById(@PathParam("relId") Long relationshipId) {
+        return removeRelationshipProperties(actions.relationshipById(relationshipId));
+    }
+
+    @GET
+    @Path("relationships/{relId}/properties/{key}")
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response getRelationshipPropertyById(@PathParam("relId") Long relationshipId, @PathParam("key") String key) {
+        return getRelationshipProperty(actions.relationshipById(relationshipId), key);
+    }
+
+    @PUT
+    @Path("relationships/{relId}/properties/{key}")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response setRelationshipPropertyById(@PathParam("relId") Long relationshipId, @PathParam("key") String key,
+            InputStream body) {
+        return setRelationshipProperty(actions.relationshipById(relationshipId), key, body);
+    }
+
+    @DELETE
+    @Path("relationships/{relId}/properties/{key}")
+    public Response removeRelationshipPropertyById(@PathParam("relId") Long relationshipId, @PathParam("key") String key) {
+        return removeRelationshipProperty(actions.relationshipById(relationshipId), key);
+    }
+
+    private Response getRelationship(RelationshipLookup relationship, String version, CommaSeparatedList fields) {
+        final EntityTag tag = entityTag(version, fields);
+        final ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return tagged(notModified, tag).build();
+        }
+        RelationshipRepresentation relrep;
         try {
-            actions.removeRelationship(nodeId,label);
-            return Response.ok().build();
+            relrep = actions.retrieveRelationship(relationship, fields);
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
+        return withEntity(tagged(Response.ok(), tag), relrep).build();
     }
 
-    @GET
-    @Path("{nodeId}/relationships/dir/{dir}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getRelationships(@PathParam("nodeId") Long nodeId, @PathParam("dir") RelationshipDirection direction) {
-        return getRelationships(nodeId, direction, new AmpersandSeparatedList());
+    private Response removeRelationship(RelationshipLookup relationship) {
+        try {
+            actions.removeRelationship(relationship);
+            return Response.ok().build();
+        } catch (NotFoundException e) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
     }
-    @GET
-    @Path("{nodeId}/relationships/{types}/dir/{dir}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getRelationships(@PathParam("nodeId") Long nodeId, @PathParam("dir") RelationshipDirection direction,
-            @PathParam("types") AmpersandSeparatedList types) {
-        List<RelationshipRepresentation> relreps;
+
+    private Response getRelationshipProperties(RelationshipLookup relationship, String version) {
+        final EntityTag tag = entityTag(version);
+        final ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return tagged(notModified, tag).build();
+        }
         try {
-            relreps = actions.retrieveRelationships(nodeId, direction, types);
+            PropertiesMap properties = actions.getRelationshipProperties(relationship);
+            if (properties.isEmpty()) {
+                return tagged(Response.noContent(), tag).build();
+            }
+            return withEntity(tagged(Response.ok(), tag), properties).build();
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
-        String json = JsonHelper.createJsonFromList(relreps);
-        return addContentLengthHeader(Response.ok(json, MediaType.APPLICATION_JSON)).build();
     }
 
-    @PUT
-    @Path("{nodeId}/relationships/{label}/properties")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response setRelationshipProperties(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, String json) {
-        PropertiesMap properties = null;
+    private Response setRelationshipProperties(RelationshipLookup relationship, InputStream body) {
+        PropertiesMap properties;
         try {
-            properties = new PropertiesMap(JsonHelper.jsonToMap(json));
+            properties = requestFormat().readProperties(body);
         } catch (PropertyValueException e) {
             return Response.status(Status.BAD_REQUEST).build();
         }
+        try {
+            actions.setRelationshipProperties(relationship, properties);
+            return Response.ok().build();
+        } catch (NotFoundException e) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+    }
 
+    private Response patchRelationshipProperties(RelationshipLookup relationship, InputStream body) {
+        PropertiesMap patch;
+        try {
+            patch = requestFormat().readPropertiesPatch(body);
+        } catch (PropertyValueException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
         try {
-            actions.setRelationshipProperties(nodeId,label, properties);
+            actions.patchRelationshipProperties(relationship, patch);
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
         }
     }
 
-    @PUT
-    @Path("{nodeId}/relationships/{label}/properties/{key}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response setRelationshipProperty(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, @PathParam("key") String key, String json) {
+    private Response removeRelationshipProperties(RelationshipLookup relationship) {
         try {
-            actions.setRelationshipProperty(nodeId,label, key, JsonHelper.jsonToSingleValue(json));
+            actions.removeRelationshipProperties(relationship);
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
+        }
+    }
+
+    private Response getRelationshipProperty(RelationshipLookup relationship, String key) {
+        try {
+            Object value = actions.getRelationshipProperty(relationship, key);
+            return withEntity(Response.ok(), new ValueRepresentation(value)).build();
         } catch (PropertyValueException e) {
-            return Response.status(Status.BAD_REQUEST).build();
+            return Response.status(Status.NOT_FOUND).build();
+        } catch (NotFoundException e) {
+            return Response.status(Status.NOT_FOUND).build();
         }
     }
 
-    @DELETE
-    @Path("{nodeId}/relationships/{label}/properties")
-    public Response removeRelationshipProperties(@PathParam("nodeId") Long nodeId,@PathParam("label") String label) {
+    private Response setRelationshipProperty(RelationshipLookup relationship, String key, InputStream body) {
         try {
-            actions.removeRelationshipProperties(nodeId,label);
+            actions.setRelationshipProperty(relationship, key, requestFormat().readSingleValue(body));
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
+        } catch (PropertyValueException e) {
+            return Response.status(Status.BAD_REQUEST).build();
         }
     }
 
-    @DELETE
-    @Path("{nodeId}/relationships/{label}/properties/{key}")
-    public Response removeRelationshipProperty(@PathParam("nodeId") Long nodeId,@PathParam("label") String label, @PathParam("key") String propertyKey) {
+    private Response removeRelationshipProperty(RelationshipLookup relationship, String key) {
         try {
-            if (actions.removeRelationshipProperty(nodeId,label, propertyKey)) {
+            if (actions.removeRelationshipProperty(relationship, key)) {
                 return Response.ok().build();
             } else {
                 return Response.status(Status.NOT_FOUND).build();
@@ -351,13 +784,102 @@ public class WebService {
         }
     }
 
+    /**
+     * Executes a list of operations in one transaction; see {@link Batch} for the format. On failure nothing is
+     * committed, and the response names the operation that failed.
+     */
+    @POST
+    @Path("batch")
+    @Consumes({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
+    public Response batch(InputStream body) {
+        final List<Representation> results;
+        try {
+            results = new Batch(actions).execute(requestFormat(), body);
+        } catch (BatchOperationException e) {
+            final Map<String, Object> error = new LinkedHashMap<String, Object>();
+            error.put("operation", e.getIndex());
+            error.put("message", e.getCause().getMessage());
+            return withEntity(Response.status(batchFailureStatus(e.getCause())), new ValueRepresentation(error)).build();
+        }
+        return withEntity(Response.ok(), new ListRepresentation(results)).build();
+    }
+
+    /**
+     * Imports a newline-delimited JSON stream of nodes and relationships (see {@link BulkImport}), committing it in
+     * chunks. The response streams one progress line per committed chunk and a final line that either reports
+     * completion or the error and the line of the element that ended the import.
+     * <p/>
+     * The response is committed as 200 before the body has been read, so the status does not tell whether the import
+     * succeeded: only a final line with {@code "done": true} does. A final line with {@code "error"} and
+     * {@code "line"} means the import stopped there, with the chunks reported before it committed; no final line at
+     * all means the connection broke. Progress is written while the body is still being read, so clients must read
+     * the response while they upload.
+     */
+    @POST
+    @Path("import")
+    @Consumes({RepresentationFormat.APPLICATION_NDJSON, MediaType.APPLICATION_JSON})
+    @Produces(RepresentationFormat.APPLICATION_NDJSON)
+    public Response importElements(final InputStream body, @QueryParam("chunk") Integer chunkSize) {
+        if (chunkSize != null && chunkSize <= 0) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        final BulkImport bulkImport = chunkSize == null
+                ? new BulkImport(uriInfo.getBaseUri())
+                : new BulkImport(uriInfo.getBaseUri(), chunkSize);
+        return Response.ok(new StreamingOutput() {
+            public void write(final OutputStream output) throws IOException {
+                try {
+                    bulkImport.run(JsonHelper.jsonFactory().createJsonParser(body), new Visitor<BulkImport>() {
+                        public void visit(BulkImport progress) throws IOException {
+                            writeProgress(output, progress, false, null);
+                        }
+                    });
+                    writeProgress(output, bulkImport, true, null);
+                } catch (RuntimeException e) {
+                    writeProgress(output, bulkImport, true, e);
+                }
+            }
+        }, RepresentationFormat.APPLICATION_NDJSON).build();
+    }
+
+    private static void writeProgress(OutputStream output, BulkImport progress, boolean finished,
+                                      RuntimeException failure) throws IOException {
+        final Map<String, Object> line = new LinkedHashMap<String, Object>();
+        line.put("nodes", progress.getNodes());
+        line.put("relationships", progress.getRelationships());
+        if (failure == null) {
+            if (finished) line.put("done", true);
+        } else {
+            line.put("error", String.valueOf(failure.getMessage()));
+            line.put("line", progress.getLine());
+        }
+        output.write((JsonHelper.createJsonFrom(line) + "\n").getBytes("UTF-8"));
+        output.flush();
+    }
+
+    private Status batchFailureStatus(Throwable failure) {
+        if (failure instanceof StartNodeNotFoundException) return Status.NOT_FOUND;
+        if (failure instanceof EndNodeNotFoundException) return Status.BAD_REQUEST;
+        if (failure instanceof NotFoundException) return Status.NOT_FOUND;
+        if (failure instanceof CascadingDeleteException) return Status.CONFLICT;
+        if (failure instanceof StartNodeSameAsEndNodeException) return Status.BAD_REQUEST;
+        if (failure instanceof PropertyValueException) return Status.BAD_REQUEST;
+        if (failure instanceof IllegalArgumentException) return Status.BAD_REQUEST;
+        return Status.INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * Runs a gremlin path expression from the node. The expression runs outside any transaction, so it can only read:
+     * an expression that tries to write fails, and entity tags never need to track it; see {@link ElementVersions}.
+     */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RepresentationFormat.APPLICATION_SMILE})
     @Path("{nodeId}/path/{code:.*}")
     public Response evaluate(@PathParam("nodeId") long id,@PathParam("code") String code) {
         try {
             Object result=actions.evaluate(id,code);
-            return addContentLengthHeader(Response.ok(JsonHelper.createJsonFrom(result))).build();
+            return withEntity(Response.ok(), new ValueRepresentation(result)).build();
 
         } catch (NotFoundException e) {
             return Response.status(Status.NOT_FOUND).build();
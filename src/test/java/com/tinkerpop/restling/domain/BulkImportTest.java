@@ -0,0 +1,144 @@
+package com.tinkerpop.restling.domain;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class BulkImportTest {
+
+    private static final URI BASE_URI;
+
+    static {
+        try {
+            BASE_URI = new URI("http://tinkerpop.org/");
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final List<Long> committed = new ArrayList<Long>();
+
+    @AfterClass
+    public static void shutDownDatabase() {
+        DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+    }
+
+    @Test
+    public void shouldImportNodesAndRelationshipsReferencedByKey() throws Exception {
+        final Long existing = GraphDbHelper.createNode();
+        final int nodesBefore = GraphDbHelper.getNumberOfNodes();
+        final int relationshipsBefore = GraphDbHelper.getNumberOfRelationships();
+
+        final BulkImport bulkImport = run(new BulkImport(BASE_URI, 2),
+                "{\"node\": \"alice\", \"properties\": {\"name\": \"Alice\"}}\n" +
+                "{\"node\": \"bob\"}\n" +
+                "{\"from\": \"alice\", \"to\": \"bob\", \"type\": \"KNOWS\", \"properties\": {\"since\": 1999}}\n" +
+                "{\"from\": \"bob\", \"to\": " + existing + ", \"type\": \"KNOWS\"}\n" +
+                "{\"node\": \"carol\"}\n");
+
+        assertEquals(3, bulkImport.getNodes());
+        assertEquals(2, bulkImport.getRelationships());
+        assertEquals(nodesBefore + 3, GraphDbHelper.getNumberOfNodes());
+        assertEquals(relationshipsBefore + 2, GraphDbHelper.getNumberOfRelationships());
+        assertEquals(asList(2L, 4L, 5L), committed);
+    }
+
+    @Test
+    public void shouldKeepCommittedChunksAndRollBackFailingChunk() throws Exception {
+        final BulkImport bulkImport = new BulkImport(BASE_URI, 2);
+        final int nodesBefore = GraphDbHelper.getNumberOfNodes();
+        try {
+            run(bulkImport,
+                    "{\"node\": \"a\"}\n" +
+                    "{\"node\": \"b\"}\n" +
+                    "{\"node\": \"c\"}\n" +
+                    "{\"from\": \"c\", \"to\": \"nobody\", \"type\": \"KNOWS\"}\n");
+            fail();
+        } catch (NotFoundException expected) {
+        }
+
+        assertEquals(2, bulkImport.getNodes());
+        assertEquals(4, bulkImport.getLine());
+        assertEquals(nodesBefore + 2, GraphDbHelper.getNumberOfNodes());
+    }
+
+    @Test(expected = PropertyValueException.class)
+    public void shouldRejectDuplicateKeys() throws Exception {
+        run(new BulkImport(BASE_URI), "{\"node\": \"a\"}\n{\"node\": \"a\"}\n");
+    }
+
+    @Test(expected = JsonParseRuntimeException.class)
+    public void shouldReportMalformedLines() throws Exception {
+        run(new BulkImport(BASE_URI), "{\"node\": \"a\"}\n{\"node\" \"b\"}\n");
+    }
+
+    @Test
+    public void shouldRejectNodeKeysThatAreNotStrings() throws Exception {
+        for (String element : asList("{\"node\": 1}", "{\"node\": {\"key\": \"a\"}}", "{\"from\": \"a\", \"to\": [1], \"type\": \"KNOWS\"}")) {
+            try {
+                run(new BulkImport(BASE_URI), element + "\n");
+                fail(element);
+            } catch (PropertyValueException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void shouldRejectRelationshipsWithoutType() throws Exception {
+        assertRejectedOnSecondLine("{\"from\": \"a\", \"to\": \"a\"}");
+    }
+
+    @Test
+    public void shouldRejectElementsThatAreBothNodeAndRelationship() throws Exception {
+        assertRejectedOnSecondLine("{\"node\": \"b\", \"from\": \"a\", \"to\": \"a\", \"type\": \"KNOWS\"}");
+        assertRejectedOnSecondLine("{\"node\": \"b\", \"from\": \"a\"}");
+    }
+
+    @Test
+    public void shouldRejectUnknownFields() throws Exception {
+        assertRejectedOnSecondLine("{\"from\": \"a\", \"to\": \"a\", \"typ\": \"KNOWS\"}");
+    }
+
+    @Test
+    public void shouldNotTrackImportedElementsButChangeTagsOfExistingNodes() throws Exception {
+        final Long existing = GraphDbHelper.createNode();
+        final ElementVersions versions = DatabaseLocator.getElementVersions();
+        final int tracked = versions.tracked();
+
+        run(new BulkImport(BASE_URI), "{\"node\": \"x\"}\n{\"node\": \"y\"}\n{\"from\": \"x\", \"to\": \"y\", \"type\": \"KNOWS\"}\n");
+        assertEquals(tracked, versions.tracked());
+
+        final String tag = versions.nodeTag(existing);
+        run(new BulkImport(BASE_URI), "{\"node\": \"z\"}\n{\"from\": \"z\", \"to\": " + existing + ", \"type\": \"KNOWS\"}\n");
+        assertFalse(tag.equals(versions.nodeTag(existing)));
+    }
+
+    private void assertRejectedOnSecondLine(String element) throws IOException {
+        final BulkImport bulkImport = new BulkImport(BASE_URI);
+        try {
+            run(bulkImport, "{\"node\": \"a\"}\n" + element + "\n");
+            fail(element);
+        } catch (PropertyValueException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("line 2"));
+        }
+        assertEquals(2, bulkImport.getLine());
+        assertEquals(0, bulkImport.getNodes());
+    }
+
+    private BulkImport run(BulkImport bulkImport, String lines) throws IOException {
+        bulkImport.run(JsonHelper.jsonFactory().createJsonParser(lines), new Visitor<BulkImport>() {
+            public void visit(BulkImport progress) {
+                committed.add(progress.getNodes() + progress.getRelationships());
+            }
+        });
+        return bulkImport;
+    }
+}
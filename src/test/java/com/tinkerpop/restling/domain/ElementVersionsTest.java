@@ -0,0 +1,113 @@
+package com.tinkerpop.restling.domain;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ElementVersionsTest {
+
+    private final ElementVersions versions = new ElementVersions();
+
+    @Test
+    public void shouldChangeTagOnlyWhenChangesArePublished() {
+        String before = versions.nodeTag(1L);
+        versions.begin();
+        versions.nodeChanged(1L);
+        assertEquals(before, versions.nodeTag(1L));
+        versions.end(true);
+        assertFalse(before.equals(versions.nodeTag(1L)));
+    }
+
+    @Test
+    public void shouldDropChangesOfFailedWork() {
+        String before = versions.nodeTag(2L);
+        versions.begin();
+        versions.nodeChanged(2L);
+        versions.end(false);
+        assertEquals(before, versions.nodeTag(2L));
+    }
+
+    @Test
+    public void shouldPublishNestedChangesWhenOutermostWorkEnds() {
+        String before = versions.nodeTag(3L);
+        versions.begin();
+        versions.begin();
+        versions.nodeChanged(3L);
+        versions.end(true);
+        assertEquals(before, versions.nodeTag(3L));
+        versions.end(true);
+        assertFalse(before.equals(versions.nodeTag(3L)));
+    }
+
+    @Test
+    public void shouldChangeBothNodesWhenRelationshipChanges() {
+        String relationship = versions.relationshipTag(7L);
+        String start = versions.nodeTag(4L);
+        String end = versions.nodeTag(5L);
+        String other = versions.nodeTag(6L);
+        versions.begin();
+        versions.relationshipChanged(7L, 4L, 5L);
+        versions.end(true);
+        assertFalse(relationship.equals(versions.relationshipTag(7L)));
+        assertFalse(start.equals(versions.nodeTag(4L)));
+        assertFalse(end.equals(versions.nodeTag(5L)));
+        assertEquals(other, versions.nodeTag(6L));
+    }
+
+    @Test
+    public void shouldKeepOnlyBoundedNumberOfVersionsWithoutReusingTags() {
+        ElementVersions bounded = new ElementVersions(2);
+        String untouched = bounded.nodeTag(9L);
+        publishNodeChange(bounded, 1L);
+        String first = bounded.nodeTag(1L);
+        publishNodeChange(bounded, 2L);
+        publishNodeChange(bounded, 3L);
+
+        assertTrue(bounded.tracked() <= 2);
+        assertFalse(first.equals(bounded.nodeTag(1L)));
+        assertFalse(untouched.equals(bounded.nodeTag(9L)));
+    }
+
+    @Test
+    public void shouldDropVersionsOfDeletedElementsWithoutReusingTheirTags() {
+        ElementVersions tracking = new ElementVersions(100);
+        String untouched = tracking.nodeTag(9L);
+        tracking.begin();
+        tracking.relationshipChanged(7L, 1L, 2L);
+        tracking.end(true);
+        String relationship = tracking.relationshipTag(7L);
+        String node = tracking.nodeTag(1L);
+
+        tracking.begin();
+        tracking.relationshipDeleted(7L, 1L, 2L);
+        tracking.nodeDeleted(1L);
+        tracking.end(true);
+
+        assertEquals(1, tracking.tracked());
+        assertFalse(relationship.equals(tracking.relationshipTag(7L)));
+        assertFalse(node.equals(tracking.nodeTag(1L)));
+        assertFalse(untouched.equals(tracking.nodeTag(9L)));
+    }
+
+    @Test
+    public void shouldChangeEveryTagWhenAllChanged() {
+        ElementVersions tracking = new ElementVersions(100);
+        publishNodeChange(tracking, 1L);
+        String changed = tracking.nodeTag(1L);
+        String untouched = tracking.relationshipTag(2L);
+
+        tracking.begin();
+        tracking.allChanged();
+        tracking.end(true);
+
+        assertEquals(0, tracking.tracked());
+        assertFalse(changed.equals(tracking.nodeTag(1L)));
+        assertFalse(untouched.equals(tracking.relationshipTag(2L)));
+    }
+
+    private static void publishNodeChange(ElementVersions versions, Long nodeId) {
+        versions.begin();
+        versions.nodeChanged(nodeId);
+        versions.end(true);
+    }
+}
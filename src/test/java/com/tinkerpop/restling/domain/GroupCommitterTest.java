@@ -0,0 +1,176 @@
+package com.tinkerpop.restling.domain;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class GroupCommitterTest {
+
+    private static final URI BASE_URI;
+
+    static {
+        try {
+            BASE_URI = new URI("http://tinkerpop.org/");
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(10);
+
+    @AfterClass
+    public static void shutDownDatabase() {
+        DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentWritesIntoSharedTransactions() throws Exception {
+        final GroupCommitter committer = new GroupCommitter(new ElementVersions(), 500, 100);
+        final List<Long> nodes = createNodes(10);
+
+        final List<Future<Object>> writes = submitPropertyWrites(committer, nodes);
+        for (Future<Object> write : writes) {
+            write.get();
+        }
+
+        assertTrue(committer.transactions() < nodes.size());
+        for (Long node : nodes) {
+            assertEquals(node, GraphDbHelper.getNodeProperties(node).get("written"));
+        }
+    }
+
+    @Test
+    public void shouldGiveEachWriteItsOwnOutcomeWhenOneOfABatchFails() throws Exception {
+        final GroupCommitter committer = new GroupCommitter(new ElementVersions(), 500, 100);
+        final List<Long> nodes = createNodes(5);
+        nodes.add(99999999L);
+
+        final List<Future<Object>> writes = submitPropertyWrites(committer, nodes);
+
+        for (int i = 0; i < nodes.size() - 1; i++) {
+            writes.get(i).get();
+            assertEquals(nodes.get(i), GraphDbHelper.getNodeProperties(nodes.get(i)).get("written"));
+        }
+        try {
+            writes.get(nodes.size() - 1).get();
+            fail();
+        } catch (java.util.concurrent.ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof NotFoundException);
+        }
+    }
+
+    @Test
+    public void shouldCommitWhenBatchIsFullWithoutWaitingForLatency() throws Exception {
+        final GroupCommitter committer = new GroupCommitter(new ElementVersions(), 60000, 1);
+        final Long node = GraphDbHelper.createNode();
+
+        committer.write(setProperty(node));
+
+        assertEquals(1, committer.transactions());
+        assertEquals(node, GraphDbHelper.getNodeProperties(node).get("written"));
+    }
+
+    @Test
+    public void shouldCommitCollectedWritesAndRejectLaterOnesOnceShutDown() throws Exception {
+        final GroupCommitter committer = new GroupCommitter(new ElementVersions(), 60000, 100);
+        final Long node = GraphDbHelper.createNode();
+        final Future<Object> write = submitPropertyWrites(committer, Collections.singletonList(node)).get(0);
+        Thread.sleep(200);
+
+        committer.shutdown();
+
+        write.get();
+        assertEquals(node, GraphDbHelper.getNodeProperties(node).get("written"));
+        try {
+            committer.write(setProperty(node));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void shouldFailCollectedWritesWhenCommitterIsInterrupted() throws Exception {
+        final GroupCommitter committer = new GroupCommitter(new ElementVersions(), 60000, 100);
+        final Long node = GraphDbHelper.createNode();
+        final Future<Object> write = submitPropertyWrites(committer, Collections.singletonList(node)).get(0);
+        Thread.sleep(200);
+
+        committer.thread().interrupt();
+
+        try {
+            write.get();
+            fail();
+        } catch (java.util.concurrent.ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, committer.transactions());
+        assertNull(GraphDbHelper.getNodeProperties(node).get("written"));
+        try {
+            committer.write(setProperty(node));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void shouldShareOneCommitterAcrossBaseUris() throws Exception {
+        DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+        System.setProperty(GroupCommitter.ENABLED_PROPERTY, "true");
+        try {
+            DatabaseLocator.getGraphDatabase(BASE_URI);
+            final GroupCommitter committer = DatabaseLocator.getGroupCommitter();
+            DatabaseLocator.getGraphDatabase(new URI("http://localhost:7474/"));
+
+            assertNotNull(committer);
+            assertSame(committer, DatabaseLocator.getGroupCommitter());
+        } finally {
+            System.clearProperty(GroupCommitter.ENABLED_PROPERTY);
+            DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+        }
+        assertNull(DatabaseLocator.getGroupCommitter());
+    }
+
+    private static List<Long> createNodes(int count) {
+        final List<Long> nodes = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(GraphDbHelper.createNode());
+        }
+        return nodes;
+    }
+
+    private List<Future<Object>> submitPropertyWrites(final GroupCommitter committer, List<Long> nodes) {
+        final List<Future<Object>> writes = new ArrayList<Future<Object>>();
+        for (final Long node : nodes) {
+            writes.add(executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    committer.write(setProperty(node));
+                    return null;
+                }
+            }));
+        }
+        return writes;
+    }
+
+    private static Runnable setProperty(final Long nodeId) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    DatabaseLocator.getNeo().getNodeById(nodeId).setProperty("written", nodeId);
+                } catch (org.neo4j.graphdb.NotFoundException e) {
+                    throw new NotFoundException("node not found " + nodeId);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package com.tinkerpop.restling.domain;
+
+import com.tinkerpop.gremlin.models.pgm.Edge;
+import com.tinkerpop.gremlin.models.pgm.Vertex;
+import org.codehaus.jackson.JsonGenerator;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonHelperTest {
+
+    @Test
+    public void shouldWriteListOfRelationshipsAsJsonArray() throws Exception {
+        URI baseUri = new URI("http://tinkerpop.org/");
+        List<RelationshipRepresentation> relreps = Arrays.asList(
+                new RelationshipRepresentation(baseUri, relationship(1L)),
+                new RelationshipRepresentation(baseUri, relationship(2L)));
+
+        List<Map<String, Object>> result = JsonHelper.jsonToListOfRelationshipRepresentations(jsonFromList(relreps));
+
+        assertEquals(2, result.size());
+        for (Map<String, Object> relrep : result) {
+            RelationshipRepresentationTest.verifySerialisation(relrep);
+        }
+    }
+
+    @Test
+    public void shouldWriteEmptyListOfRelationships() throws Exception {
+        String json = jsonFromList(Collections.<RelationshipRepresentation>emptyList());
+        assertEquals(0, JsonHelper.jsonToList(json).size());
+    }
+
+    @Test
+    public void shouldRoundTripMap() {
+        Map<String, Object> map = JsonHelper.jsonToMap(JsonHelper.createJsonFrom(Collections.singletonMap("foo", "bar")));
+        assertEquals("bar", map.get("foo"));
+    }
+
+    @Test(expected = JsonParseRuntimeException.class)
+    public void shouldFailOnInvalidJson() {
+        JsonHelper.jsonToMap("{\"foo\" : bad-json-here \"bar\"}");
+    }
+
+    private String jsonFromList(List<RelationshipRepresentation> relreps) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = JsonHelper.createJsonGenerator(out);
+        generator.writeStartArray();
+        for (RelationshipRepresentation relrep : relreps) {
+            JsonHelper.writeJsonTo(generator, relrep.serialize());
+        }
+        generator.writeEndArray();
+        generator.close();
+        return out.toString("UTF-8");
+    }
+
+    private Edge relationship(Object id) {
+        Vertex startNode = mock(Vertex.class);
+        when(startNode.getId()).thenReturn(0L);
+        Vertex endNode = mock(Vertex.class);
+        when(endNode.getId()).thenReturn(1L);
+
+        Edge relationship = mock(Edge.class);
+        when(relationship.getId()).thenReturn(id);
+        when(relationship.getPropertyKeys()).thenReturn(Collections.<String>emptySet());
+        when(relationship.getOutVertex()).thenReturn(startNode);
+        when(relationship.getInVertex()).thenReturn(endNode);
+        when(relationship.getLabel()).thenReturn("KNOWS");
+        return relationship;
+    }
+}
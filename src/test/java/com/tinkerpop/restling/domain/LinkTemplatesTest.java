@@ -0,0 +1,17 @@
+package com.tinkerpop.restling.domain;
+
+import org.junit.Test;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertEquals;
+
+public class LinkTemplatesTest {
+
+    @Test
+    public void shouldBuildNodeAndRelationshipLinks() throws Exception {
+        LinkTemplates links = new LinkTemplates(new URI("http://tinkerpop.org/"));
+        assertEquals("http://tinkerpop.org/17", links.node(17L));
+        assertEquals("http://tinkerpop.org/relationships/42", links.relationship(42L));
+    }
+}
@@ -9,6 +9,7 @@ import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -90,6 +91,12 @@ public class NodeRepresentationTest {
         verifySerialisation(repr);
     }
 
+    @Test
+    public void shouldSerialiseToGeneratorLikeToMap() {
+        NodeRepresentation rep = noderep(1234);
+        assertEquals(JsonHelper.jsonToMap(JsonHelper.createJsonFrom(rep.serialize())), JsonHelper.jsonToMap(JsonHelper.createJsonFrom(rep)));
+    }
+
     private static void assertUriMatches(String expectedRegex, URI actualUri) {
         assertUriMatches(expectedRegex, actualUri.toString());
     }
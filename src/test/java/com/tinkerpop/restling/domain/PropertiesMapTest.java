@@ -2,12 +2,17 @@ package com.tinkerpop.restling.domain;
 
 import org.junit.Test;
 import com.tinkerpop.gremlin.models.pgm.Element;
+import org.neo4j.graphdb.PropertyContainer;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.*;
 
 import static org.junit.Assert.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
 
 public class PropertiesMapTest {
 
@@ -57,8 +62,8 @@ public class PropertiesMapTest {
         assertEquals(3.14, ((Double) properties.getValue("double")).doubleValue(), 0);
         assertEquals(42.0f, ((Float) properties.getValue("float")).floatValue(), 0);
         assertArrayEquals(new String[] { "one", "two" }, (String[]) properties.getValue("string list"));
-        assertArrayEquals(new Long[] { 5L, 17L }, (Long[]) properties.getValue("Object list"));
-        assertArrayEquals(new Double[] { 3.14, 42.0 }, (Double[]) properties.getValue("double list"));
+        assertArrayEquals(new long[] { 5L, 17L }, (long[]) properties.getValue("Object list"));
+        assertArrayEquals(new double[] { 3.14, 42.0 }, (double[]) properties.getValue("double list"), 0);
     }
 
     @Test
@@ -73,6 +78,7 @@ public class PropertiesMapTest {
         values.put("string array", new String[] { "one", "two" });
         values.put("Object array", new Object[] { 5L, 17L });
         values.put("double array", new double[] { 3.14, 42.0 });
+        values.put("boolean array", new boolean[] { true, false });
 
         PropertiesMap properties = new PropertiesMap(container(values));
         Map<String, Object> map = properties.serialize();
@@ -85,6 +91,131 @@ public class PropertiesMapTest {
         assertEqualContent(Arrays.asList("one", "two"), (List) map.get("string array"));
         assertEqualContent(Arrays.asList(5L, 17L), (List) map.get("Object array"));
         assertEqualContent(Arrays.asList(3.14, 42.0), (List) map.get("double array"));
+        assertEqualContent(Arrays.asList(true, false), (List) map.get("boolean array"));
+    }
+
+    @Test
+    public void shouldSerializeToGeneratorLikeToMap() {
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("string", "value");
+        values.put("int", 5);
+        values.put("double", 3.14);
+        values.put("boolean", true);
+        values.put("string array", new String[] { "one", "two" });
+        values.put("long array", new long[] { 5L, 17L });
+        values.put("double array", new double[] { 3.14, 42.0 });
+        values.put("boolean array", new boolean[] { true, false });
+        values.put("empty array", new byte[0]);
+
+        PropertiesMap properties = new PropertiesMap(container(values));
+
+        assertEquals(JsonHelper.jsonToMap(JsonHelper.createJsonFrom(properties.serialize())),
+                JsonHelper.jsonToMap(JsonHelper.createJsonFrom(properties)));
+    }
+
+    @Test
+    public void shouldReadInternalValueTypesFromParser() throws Exception {
+        PropertiesMap properties = JsonHelper.readProperties(JsonHelper.jsonFactory(), stream(
+                "{\"string\":\"value\",\"int\":5,\"long\":17000000000,\"double\":3.14,\"boolean\":true,"
+                + "\"string list\":[\"one\",\"two\"],\"long list\":[5,17],\"double list\":[3.14,42],"
+                + "\"boolean list\":[true,false],\"empty\":[]}"));
+
+        assertEquals("value", properties.getValue("string"));
+        assertEquals(5, properties.getValue("int"));
+        assertEquals(17000000000L, properties.getValue("long"));
+        assertEquals(3.14, properties.getValue("double"));
+        assertEquals(Boolean.TRUE, properties.getValue("boolean"));
+        assertArrayEquals(new String[] { "one", "two" }, (String[]) properties.getValue("string list"));
+        assertArrayEquals(new long[] { 5L, 17L }, (long[]) properties.getValue("long list"));
+        assertArrayEquals(new double[] { 3.14, 42.0 }, (double[]) properties.getValue("double list"), 0);
+        assertTrue(Arrays.equals(new boolean[] { true, false }, (boolean[]) properties.getValue("boolean list")));
+        assertEquals(0, ((byte[]) properties.getValue("empty")).length);
+    }
+
+    @Test(expected = PropertyValueException.class)
+    public void shouldRejectNestedObjectsWhenReadingFromParser() {
+        JsonHelper.readProperties(JsonHelper.jsonFactory(), stream("{\"foo\":{\"bar\":\"baz\"}}"));
+    }
+
+    @Test(expected = PropertyValueException.class)
+    public void shouldRejectMixedArraysWhenReadingFromParser() {
+        JsonHelper.readProperties(JsonHelper.jsonFactory(), stream("{\"foo\":[1,\"two\"]}"));
+    }
+
+    @Test(expected = PropertyValueException.class)
+    public void shouldRejectNullsWhenReadingFromParser() {
+        JsonHelper.readProperties(JsonHelper.jsonFactory(), stream("{\"foo\":null}"));
+    }
+
+    @Test
+    public void shouldReadLargeNumberArraysIntoPrimitiveArrays() {
+        StringBuilder json = new StringBuilder("{\"longs\":[");
+        for (int i = 0; i < 10000; i++) {
+            json.append(i == 0 ? "" : ",").append(i);
+        }
+        json.append("],\"doubles\":[1");
+        for (int i = 1; i < 10000; i++) {
+            json.append(",").append(i + 0.5);
+        }
+        json.append("]}");
+
+        PropertiesMap properties = JsonHelper.readProperties(JsonHelper.jsonFactory(), stream(json.toString()));
+
+        long[] longs = (long[]) properties.getValue("longs");
+        double[] doubles = (double[]) properties.getValue("doubles");
+        assertEquals(10000, longs.length);
+        assertEquals(9999L, longs[9999]);
+        assertEquals(10000, doubles.length);
+        assertEquals(1.0, doubles[0], 0);
+        assertEquals(9999.5, doubles[9999], 0);
+
+        PropertiesMap roundTripped = JsonHelper.readProperties(JsonHelper.jsonFactory(), stream(JsonHelper.createJsonFrom(properties)));
+        assertArrayEquals(longs, (long[]) roundTripped.getValue("longs"));
+        assertArrayEquals(doubles, (double[]) roundTripped.getValue("doubles"), 0);
+    }
+
+    @Test(expected = PropertyValueException.class)
+    public void shouldRejectMixedListsWhenCreatingFromMap() {
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("mixed", Arrays.asList(1, "two"));
+        new PropertiesMap(values);
+    }
+
+    @Test
+    public void shouldOnlyWriteChangedAndRemoveNulledKeysWhenPatching() {
+        PropertyContainer container = mock(PropertyContainer.class);
+        when(container.getProperty("same", null)).thenReturn("value");
+        when(container.getProperty("sameArray", null)).thenReturn(new long[]{1, 2});
+        when(container.getProperty("changed", null)).thenReturn("old");
+        when(container.hasProperty("removed")).thenReturn(true);
+
+        PropertiesMap patch = JsonHelper.readPropertiesPatch(JsonHelper.jsonFactory(), stream(
+                "{\"same\":\"value\",\"sameArray\":[1,2],\"changed\":\"new\",\"removed\":null,\"absent\":null}"));
+
+        assertTrue(patch.patch(container));
+        verify(container).setProperty("changed", "new");
+        verify(container).removeProperty("removed");
+        verify(container, never()).setProperty(eq("same"), any());
+        verify(container, never()).setProperty(eq("sameArray"), any());
+        verify(container, never()).removeProperty("absent");
+    }
+
+    @Test
+    public void shouldReportUnchangedContainerForNoOpPatch() {
+        PropertyContainer container = mock(PropertyContainer.class);
+        when(container.getProperty("same", null)).thenReturn("value");
+
+        PropertiesMap patch = JsonHelper.readPropertiesPatch(JsonHelper.jsonFactory(), stream("{\"same\":\"value\"}"));
+
+        assertFalse(patch.patch(container));
+    }
+
+    private static InputStream stream(String json) {
+        try {
+            return new ByteArrayInputStream(json.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Test
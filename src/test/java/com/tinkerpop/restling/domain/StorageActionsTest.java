@@ -7,17 +7,25 @@ import com.tinkerpop.gremlin.models.pgm.Vertex;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import static com.tinkerpop.restling.domain.DatabaseLocator.inTransaction;
+import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 
 public class StorageActionsTest {
@@ -371,6 +379,360 @@ public class StorageActionsTest {
         assertEquals(1, GraphDbHelper.getRelationshipProperties(relId.getStartNodeId(), relId.getType()).size());
     }
 
+    @Test
+    public void shouldRetrieveOnlyRequestedTypesFromNodeWithManyTypes() {
+        Long nodeId = GraphDbHelper.createNode();
+        for (int i = 0; i < 50; i++) {
+            GraphDbHelper.createRelationship("TYPE" + i, nodeId, GraphDbHelper.createNode());
+        }
+        GraphDbHelper.createRelationship("TYPE7", GraphDbHelper.createNode(), nodeId);
+
+        verifyRelReps(2, actions.retrieveRelationships(nodeId, RelationshipDirection.all, "TYPE7"));
+        verifyRelReps(3, actions.retrieveRelationships(nodeId, RelationshipDirection.all, "TYPE7", "TYPE8", "TYPE7"));
+        verifyRelReps(1, actions.retrieveRelationships(nodeId, RelationshipDirection.in, "TYPE7", "TYPE8"));
+        verifyRelReps(0, actions.retrieveRelationships(nodeId, RelationshipDirection.all, "UNKNOWN"));
+    }
+
+    @Test
+    public void shouldResumeRelationshipPagesInIdOrderFromOpenOrExpiredCursors() {
+        Long nodeId = GraphDbHelper.createNode();
+        for (int i = 0; i < 5; i++) {
+            GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+        }
+        List<Long> all = new ArrayList<Long>();
+        for (RelationshipRepresentation relationship : actions.retrieveRelationships(nodeId, RelationshipDirection.out)) {
+            all.add((Long) relationship.getId());
+        }
+        Collections.sort(all);
+
+        final List<Object> paged = new ArrayList<Object>();
+        Visitor<RelationshipRepresentation> collect = collectIds(paged);
+        List<String> noTypes = Collections.emptyList();
+        String cursor = actions.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, 2, null, collect);
+        assertNotNull(cursor);
+        String expired = expired(cursor);
+        cursor = actions.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, 2, cursor, collect);
+        assertNotNull(cursor);
+        assertNull(actions.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, 2, cursor, collect));
+        assertEquals(all, paged);
+
+        paged.clear();
+        actions.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, 10, expired, collect);
+        assertEquals(all.subList(2, 5), paged);
+    }
+
+    @Test
+    public void shouldResumeExpiredCursorAfterItsLastRelationshipWasDeleted() {
+        Long nodeId = GraphDbHelper.createNode();
+        for (int i = 0; i < 4; i++) {
+            GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+        }
+        final List<Object> paged = new ArrayList<Object>();
+        List<String> noTypes = Collections.emptyList();
+        String cursor = actions.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, 2, null, collectIds(paged));
+        actions.removeRelationship(actions.relationshipById(paged.get(1)));
+
+        paged.clear();
+        assertNull(actions.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, 2, expired(cursor), collectIds(paged)));
+        assertEquals(2, paged.size());
+    }
+
+    @Test
+    public void shouldPageInIdOrderThroughMoreRelationshipsThanTheScanWindow() {
+        DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+        System.setProperty(RelationshipCursors.WINDOW_PROPERTY, "5");
+        try {
+            StorageActions windowed = new StorageActions(BASE_URI);
+            Long nodeId = GraphDbHelper.createNode();
+            final List<Object> all = new ArrayList<Object>();
+            for (int i = 0; i < 23; i++) {
+                all.add(GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode()).getId());
+                GraphDbHelper.createRelationship("LIKES", GraphDbHelper.createNode(), nodeId);
+            }
+            List<String> noTypes = Collections.emptyList();
+
+            for (int limit : new int[]{3, 8}) {
+                final List<Object> paged = new ArrayList<Object>();
+                String cursor = windowed.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, limit, null, collectIds(paged));
+                for (int page = 1; cursor != null; page++) {
+                    if (page % 2 == 0) cursor = expired(cursor);
+                    cursor = windowed.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, limit, cursor, collectIds(paged));
+                }
+                assertEquals(all, paged);
+            }
+        } finally {
+            System.clearProperty(RelationshipCursors.WINDOW_PROPERTY);
+            DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+        }
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void shouldRejectCursorOfAnotherListing() {
+        Long nodeId = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+        GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+        List<String> noTypes = Collections.emptyList();
+        Visitor<RelationshipRepresentation> ignore = collectIds(new ArrayList<Object>());
+        String cursor = actions.visitRelationships(nodeId, RelationshipDirection.out, noTypes, null, 1, null, ignore);
+
+        actions.visitRelationships(nodeId, RelationshipDirection.out, asList("LIKES"), null, 1, cursor, ignore);
+    }
+
+    private static Visitor<RelationshipRepresentation> collectIds(final List<Object> ids) {
+        return new Visitor<RelationshipRepresentation>() {
+            public void visit(RelationshipRepresentation relationship) {
+                ids.add(relationship.getId());
+            }
+        };
+    }
+
+    /**
+     * The same cursor with a sequence number that was never handed out, as if it had expired.
+     */
+    private static String expired(String cursor) {
+        return "0" + cursor.substring(cursor.indexOf('.'));
+    }
+
+    @Test
+    public void shouldFindRelationshipByLabelAmongManyRelationshipsOfOtherTypes() {
+        Long hub = GraphDbHelper.createNode();
+        for (int i = 0; i < 200; i++) {
+            GraphDbHelper.createRelationship("NOISE" + (i % 10), hub, GraphDbHelper.createNode());
+        }
+        Long end = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("TARGET", hub, end);
+
+        RelationshipRepresentation found = actions.retrieveRelationship(hub, "TARGET");
+
+        assertEquals("TARGET", found.getType());
+        assertEquals(end, found.getEndNodeId());
+    }
+
+    @Test(expected = com.tinkerpop.restling.domain.NotFoundException.class)
+    public void shouldOnlyFindOutgoingRelationshipsByLabel() {
+        Long node = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("INCOMING", GraphDbHelper.createNode(), node);
+        actions.retrieveRelationship(node, "INCOMING");
+    }
+
+    @Test
+    public void shouldRetrieveManyNodesAndReportMissingOnes() {
+        Long first = GraphDbHelper.createNode();
+        Long second = GraphDbHelper.createNode();
+
+        NodesRepresentation result = actions.retrieveNodes(asList(second, 99999999L, first), null);
+
+        assertEquals(2, result.getNodes().size());
+        assertEquals(second, result.getNodes().get(0).getId());
+        assertEquals(first, result.getNodes().get(1).getId());
+        assertEquals(asList(99999999L), result.getMissing());
+    }
+
+    @Test
+    public void shouldRetrieveRelationshipByIdAmongManyRelationshipsOfTheSameNode() {
+        Long hub = GraphDbHelper.createNode();
+        for (int i = 0; i < 200; i++) {
+            GraphDbHelper.createRelationship("LIKES", hub, GraphDbHelper.createNode());
+        }
+        RelationshipRepresentation target = GraphDbHelper.createRelationship("LIKES", GraphDbHelper.createNode(), hub);
+
+        RelationshipRepresentation found = actions.retrieveRelationship(actions.relationshipById(target.getId()));
+
+        assertEquals(target.getId(), found.getId());
+        assertEquals(hub, found.getEndNodeId());
+    }
+
+    @Test(expected = com.tinkerpop.restling.domain.NotFoundException.class)
+    public void shouldNotFindRelationshipByIdAfterRemovingIt() {
+        RelationshipRepresentation representation = GraphDbHelper.createRelationship("LOVES");
+
+        actions.removeRelationship(actions.relationshipById(representation.getId()));
+        actions.retrieveRelationship(actions.relationshipById(representation.getId()));
+    }
+
+    @Test
+    public void shouldSetAndRemoveRelationshipPropertiesById() {
+        RelationshipRepresentation representation = GraphDbHelper.createRelationship("LOVES");
+        StorageActions.RelationshipLookup relationship = actions.relationshipById(representation.getId());
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("foo", "bar");
+
+        actions.setRelationshipProperties(relationship, new PropertiesMap(properties));
+        actions.setRelationshipProperty(relationship, "number", 15);
+
+        assertEquals("bar", actions.getRelationshipProperty(relationship, "foo"));
+        assertEquals(15, actions.getRelationshipProperties(relationship).serialize().get("number"));
+        assertTrue(actions.removeRelationshipProperty(relationship, "foo"));
+        assertFalse(actions.removeRelationshipProperty(relationship, "foo"));
+        actions.removeRelationshipProperties(relationship);
+        assertTrue(actions.getRelationshipProperties(relationship).isEmpty());
+    }
+
+    @Test
+    public void shouldReadOwnChangesInsideEnclosingTransaction() {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("foo", "bar");
+        Object value = actions.inTransaction(new Callable<Object>() {
+            public Object call() throws Exception {
+                NodeRepresentation node = actions.createNode(new PropertiesMap(properties));
+                return actions.getNodeProperty(node.getId(), "foo");
+            }
+        });
+        assertEquals("bar", value);
+    }
+
+    @Test
+    public void shouldReadCommittedDataOutsideTransactions() {
+        Long node = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("KNOWS", node, GraphDbHelper.createNode());
+        assertEquals(node, actions.retrieveNode(node).getId());
+        assertEquals(1, actions.retrieveRelationships(node, RelationshipDirection.all).size());
+    }
+
+    @Test
+    public void shouldSetPropertiesThroughGroupCommitWhenEnabled() {
+        DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+        System.setProperty(GroupCommitter.ENABLED_PROPERTY, "true");
+        try {
+            StorageActions groupCommitting = new StorageActions(BASE_URI);
+            GroupCommitter committer = DatabaseLocator.getGroupCommitter();
+            Long node = GraphDbHelper.createNode();
+            long transactions = committer.transactions();
+
+            groupCommitting.setNodeProperty(node, "foo", "bar");
+
+            assertEquals(transactions + 1, committer.transactions());
+            assertEquals("bar", GraphDbHelper.getNodeProperties(node).get("foo"));
+        } finally {
+            System.clearProperty(GroupCommitter.ENABLED_PROPERTY);
+            DatabaseLocator.shutdownGraphDatabase(BASE_URI);
+        }
+    }
+
+    @Test
+    public void shouldDeleteNodeAndAllRelationshipsInChunksWhenCascading() {
+        Long node = GraphDbHelper.createNode();
+        for (int i = 0; i < 5; i++) {
+            GraphDbHelper.createRelationship("OUT", node, GraphDbHelper.createNode());
+            GraphDbHelper.createRelationship("IN", GraphDbHelper.createNode(), node);
+        }
+        int nodeCount = GraphDbHelper.getNumberOfNodes();
+        int relationshipCount = GraphDbHelper.getNumberOfRelationships();
+
+        actions.deleteNodeCascading(node, 3);
+
+        assertEquals(nodeCount - 1, GraphDbHelper.getNumberOfNodes());
+        assertEquals(relationshipCount - 10, GraphDbHelper.getNumberOfRelationships());
+    }
+
+    @Test(expected = com.tinkerpop.restling.domain.NotFoundException.class)
+    public void shouldFailCascadingDeleteOfUnknownNode() {
+        actions.deleteNodeCascading(99999999L);
+    }
+
+    @Test
+    public void shouldExpandNeighborhoodHopByHopListingEachElementOnce() {
+        Long a = GraphDbHelper.createNode();
+        Long b = GraphDbHelper.createNode();
+        Long c = GraphDbHelper.createNode();
+        Long d = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("KNOWS", a, b);
+        GraphDbHelper.createRelationship("LIKES", a, c);
+        GraphDbHelper.createRelationship("KNOWS", b, d);
+        GraphDbHelper.createRelationship("KNOWS", c, d);
+        GraphDbHelper.createRelationship("KNOWS", d, a);
+
+        NeighborhoodRepresentation outTwice = actions.expand(a, asList(Hop.valueOf("out"), Hop.valueOf("out")), null);
+        assertEquals(4, outTwice.getNodes().size());
+        assertEquals(4, outTwice.getRelationships().size());
+
+        NeighborhoodRepresentation knowsThenOut = actions.expand(a, asList(Hop.valueOf("out:KNOWS"), Hop.valueOf("out")), null);
+        assertEquals(asList(a, b, d), nodeIds(knowsThenOut));
+        assertEquals(2, knowsThenOut.getRelationships().size());
+
+        NeighborhoodRepresentation bothWays = actions.expand(a, asList(Hop.valueOf("all"), Hop.valueOf("all")), null);
+        assertEquals(4, bothWays.getNodes().size());
+        assertEquals(5, bothWays.getRelationships().size());
+    }
+
+    @Test(expected = com.tinkerpop.restling.domain.NotFoundException.class)
+    public void shouldFailToExpandUnknownNode() {
+        actions.expand(99999999L, asList(Hop.valueOf("all")), null);
+    }
+
+    @Test
+    public void shouldFindShortestPathFollowingDirection() {
+        Long a = GraphDbHelper.createNode();
+        Long b = GraphDbHelper.createNode();
+        Long c = GraphDbHelper.createNode();
+        Long d = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("KNOWS", a, b);
+        GraphDbHelper.createRelationship("KNOWS", b, c);
+        GraphDbHelper.createRelationship("KNOWS", c, d);
+        GraphDbHelper.createRelationship("LIKES", d, a);
+        List<String> noTypes = Collections.emptyList();
+
+        assertEquals(asList(a, b, c, d), actions.findShortestPath(a, d, 6, RelationshipDirection.out, noTypes).getNodeIds());
+        assertEquals(asList(a, d), actions.findShortestPath(a, d, 6, RelationshipDirection.all, noTypes).getNodeIds());
+        assertEquals(asList(d, c, b, a), actions.findShortestPath(d, a, 6, RelationshipDirection.in, noTypes).getNodeIds());
+        assertEquals(3, actions.findShortestPath(a, d, 6, RelationshipDirection.all, asList("KNOWS")).length());
+        assertNull(actions.findShortestPath(a, d, 2, RelationshipDirection.out, noTypes));
+        assertEquals(0, actions.findShortestPath(a, a, 6, RelationshipDirection.out, noTypes).length());
+    }
+
+    @Test
+    public void shouldFindPathsAsShortAsBreadthFirstSearchOnPowerLawGraph() {
+        Random random = new Random(42);
+        List<Long> nodes = new ArrayList<Long>();
+        List<Long> endpoints = new ArrayList<Long>();
+        for (int i = 0; i < 300; i++) {
+            Long node = GraphDbHelper.createNode();
+            for (int edge = 0; edge < 2 && !endpoints.isEmpty(); edge++) {
+                Long target = endpoints.get(random.nextInt(endpoints.size()));
+                GraphDbHelper.createRelationship("LINKS", node, target);
+                endpoints.add(target);
+            }
+            nodes.add(node);
+            endpoints.add(node);
+        }
+        List<String> noTypes = Collections.emptyList();
+        for (int query = 0; query < 50; query++) {
+            Long from = nodes.get(random.nextInt(nodes.size()));
+            Long to = nodes.get(random.nextInt(nodes.size()));
+            for (RelationshipDirection direction : RelationshipDirection.values()) {
+                PathRepresentation path = actions.findShortestPath(from, to, 10, direction, noTypes);
+                int expected = breadthFirstDistance(from, to, direction, 10);
+                assertEquals(expected, path == null ? -1 : path.length());
+            }
+        }
+    }
+
+    private static int breadthFirstDistance(Long from, Long to, RelationshipDirection direction, int maxDepth) {
+        GraphDatabaseService neo = DatabaseLocator.getNeo();
+        Set<Long> seen = new HashSet<Long>(Collections.singleton(from));
+        List<Node> frontier = Collections.singletonList(neo.getNodeById(from));
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            List<Node> next = new ArrayList<Node>();
+            for (Node node : frontier) {
+                if (node.getId() == to) return depth;
+                for (Relationship relationship : node.getRelationships(direction.internal)) {
+                    Node other = relationship.getOtherNode(node);
+                    if (seen.add(other.getId())) next.add(other);
+                }
+            }
+            frontier = next;
+        }
+        return -1;
+    }
+
+    private static List<Object> nodeIds(NeighborhoodRepresentation neighborhood) {
+        List<Object> ids = new ArrayList<Object>();
+        for (NodeRepresentation node : neighborhood.getNodes()) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
     private void verifyRelReps(int expectedSize, List<RelationshipRepresentation> relreps) {
         assertEquals(expectedSize, relreps.size());
         for (RelationshipRepresentation relrep : relreps) {
@@ -0,0 +1,138 @@
+package com.tinkerpop.restling.web;
+
+import com.sun.jersey.api.OutBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class CompressionFilterTest {
+
+    private final CompressionFilter filter = new CompressionFilter(100, 6);
+    private final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+
+    @Test
+    public void shouldPreferHighestQualityEncodingAndGzipOnTies() {
+        assertEquals(CompressionFilter.Encoding.GZIP, CompressionFilter.Encoding.forAcceptEncoding("gzip, deflate"));
+        assertEquals(CompressionFilter.Encoding.GZIP, CompressionFilter.Encoding.forAcceptEncoding("deflate, gzip"));
+        assertEquals(CompressionFilter.Encoding.DEFLATE, CompressionFilter.Encoding.forAcceptEncoding("gzip;q=0.5, deflate"));
+        assertEquals(CompressionFilter.Encoding.DEFLATE, CompressionFilter.Encoding.forAcceptEncoding("gzip;q=0, deflate"));
+        assertNull(CompressionFilter.Encoding.forAcceptEncoding("gzip;q=0"));
+        assertNull(CompressionFilter.Encoding.forAcceptEncoding("deflate;q=0, gzip;q=0.0"));
+        assertNull(CompressionFilter.Encoding.forAcceptEncoding("identity"));
+        assertNull(CompressionFilter.Encoding.forAcceptEncoding(null));
+    }
+
+    @Test
+    public void shouldLeaveSmallEntitiesUncompressed() {
+        ContainerResponse response = response(new byte[99]);
+        filter.filter(request("gzip"), response);
+        verify(response, never()).setContainerResponseWriter(any(ContainerResponseWriter.class));
+        assertFalse(response.getHttpHeaders().containsKey("Content-Encoding"));
+    }
+
+    @Test
+    public void shouldLeaveResponsesUncompressedWhenClientDoesNotAcceptEncoding() {
+        ContainerResponse response = response(new byte[1000]);
+        filter.filter(request(null), response);
+        verify(response, never()).setContainerResponseWriter(any(ContainerResponseWriter.class));
+    }
+
+    @Test
+    public void shouldGzipLargeEntities() throws Exception {
+        byte[] entity = repetitiveEntity();
+        ContainerResponse response = response(entity);
+        response.getHttpHeaders().add("Content-Length", String.valueOf(entity.length));
+        filter.filter(request("gzip"), response);
+
+        assertEquals("gzip", response.getHttpHeaders().getFirst("Content-Encoding"));
+        assertFalse(response.getHttpHeaders().containsKey("Content-Length"));
+        byte[] compressed = writeThroughInstalledWriter(response, entity);
+        assertTrue(compressed.length < entity.length / 10);
+        assertArrayEquals(entity, readFully(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void shouldDeflateLargeEntities() throws Exception {
+        byte[] entity = repetitiveEntity();
+        ContainerResponse response = response(entity);
+        filter.filter(request("deflate"), response);
+
+        assertEquals("deflate", response.getHttpHeaders().getFirst("Content-Encoding"));
+        byte[] compressed = writeThroughInstalledWriter(response, entity);
+        assertArrayEquals(entity, readFully(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void shouldAddVaryOnlyWhenResponseDoesNotVaryWithAcceptEncodingYet() throws Exception {
+        ContainerResponse plain = response(repetitiveEntity());
+        filter.filter(request("gzip"), plain);
+        assertEquals(asList((Object) "Accept-Encoding"), plain.getHttpHeaders().get("Vary"));
+
+        ContainerResponse tagged = response(repetitiveEntity());
+        tagged.getHttpHeaders().add("Vary", "Accept, Accept-Encoding");
+        filter.filter(request("gzip"), tagged);
+        assertEquals(asList((Object) "Accept, Accept-Encoding"), tagged.getHttpHeaders().get("Vary"));
+    }
+
+    private static byte[] repetitiveEntity() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            json.append("{\"self\":\"http://localhost:9999/relationships/").append(i).append("\"},");
+        }
+        return json.append("{}]").toString().getBytes("UTF-8");
+    }
+
+    private byte[] writeThroughInstalledWriter(ContainerResponse response, byte[] entity) throws IOException {
+        ArgumentCaptor<ContainerResponseWriter> installed = ArgumentCaptor.forClass(ContainerResponseWriter.class);
+        verify(response).setContainerResponseWriter(installed.capture());
+        OutputStream out = installed.getValue().writeStatusAndHeaders(entity.length, response);
+        out.write(entity);
+        installed.getValue().finish();
+        return wire.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = in.read(buffer)) != -1;) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static ContainerRequest request(String acceptEncoding) {
+        ContainerRequest request = mock(ContainerRequest.class);
+        when(request.getHeaderValue("Accept-Encoding")).thenReturn(acceptEncoding);
+        return request;
+    }
+
+    private ContainerResponse response(Object entity) {
+        ContainerResponse response = mock(ContainerResponse.class);
+        when(response.getEntity()).thenReturn(entity);
+        when(response.getHttpHeaders()).thenReturn(new OutBoundHeaders());
+        when(response.getContainerResponseWriter()).thenReturn(new ContainerResponseWriter() {
+            public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) {
+                return wire;
+            }
+
+            public void finish() {
+            }
+        });
+        return response;
+    }
+}
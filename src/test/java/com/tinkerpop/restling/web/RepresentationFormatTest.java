@@ -0,0 +1,60 @@
+package com.tinkerpop.restling.web;
+
+import com.tinkerpop.restling.domain.PropertiesMap;
+import org.junit.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RepresentationFormatTest {
+
+    private static final MediaType SMILE_TYPE = MediaType.valueOf(RepresentationFormat.APPLICATION_SMILE);
+
+    @Test
+    public void shouldDefaultToJsonWithoutHeaders() {
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.forAccept(null));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.forContentType(null));
+    }
+
+    @Test
+    public void shouldPickJsonForWildcardAccept() {
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.forAccept(accepting(MediaType.WILDCARD_TYPE)));
+    }
+
+    @Test
+    public void shouldPickSmileWhenPreferred() {
+        assertEquals(RepresentationFormat.SMILE, RepresentationFormat.forAccept(accepting(SMILE_TYPE, MediaType.APPLICATION_JSON_TYPE)));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.forAccept(accepting(MediaType.APPLICATION_JSON_TYPE, SMILE_TYPE)));
+    }
+
+    @Test
+    public void shouldReadSmileContent() {
+        HttpHeaders headers = mock(HttpHeaders.class);
+        when(headers.getMediaType()).thenReturn(SMILE_TYPE);
+        assertEquals(RepresentationFormat.SMILE, RepresentationFormat.forContentType(headers));
+    }
+
+    @Test
+    public void shouldRoundTripPropertiesThroughSmile() {
+        PropertiesMap properties = new PropertiesMap(Collections.<String, Object>singletonMap("foo", "bar"));
+        byte[] smile = RepresentationFormat.SMILE.entity(properties);
+
+        Map<String, Object> read = RepresentationFormat.SMILE.readMap(new ByteArrayInputStream(smile));
+
+        assertEquals("bar", read.get("foo"));
+    }
+
+    private HttpHeaders accepting(MediaType... types) {
+        HttpHeaders headers = mock(HttpHeaders.class);
+        when(headers.getAcceptableMediaTypes()).thenReturn(Arrays.asList(types));
+        return headers;
+    }
+}
@@ -5,9 +5,22 @@ import com.tinkerpop.restling.domain.*;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
@@ -16,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 
 import static com.tinkerpop.restling.domain.GraphDbHelper.longValue;
+import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -41,7 +55,7 @@ public class WebServiceTest {
 
         assertEquals(201, response.getStatus());
         assertNotNull(response.getMetadata().get("Location").get(0));
-        String json = (String) response.getEntity();
+        String json = entityAsString(response);
 
         Map<String, Object> map = JsonHelper.jsonToMap(json);
 
@@ -53,11 +67,11 @@ public class WebServiceTest {
     @Test
     public void shouldRespondWith201LocationHeaderAndNodeRepresentationInJSONWhenPopulatedNodeCreated()
             throws Exception {
-        Response response = service.createNode("{\"foo\" : \"bar\"}");
+        Response response = service.createNode(body("{\"foo\" : \"bar\"}"));
 
         assertEquals(201, response.getStatus());
         assertNotNull(response.getMetadata().get("Location").get(0));
-        String json = (String) response.getEntity();
+        String json = entityAsString(response);
 
         Map<String, Object> map = JsonHelper.jsonToMap(json);
 
@@ -75,11 +89,11 @@ public class WebServiceTest {
     @SuppressWarnings("unchecked")
     public void shouldRespondWith201LocationHeaderAndNodeRepresentationInJSONWhenPopulatedNodeCreatedWithArrays()
             throws Exception {
-        Response response = service.createNode("{\"foo\" : [\"bar\", \"baz\"] }");
+        Response response = service.createNode(body("{\"foo\" : [\"bar\", \"baz\"] }"));
 
         assertEquals(201, response.getStatus());
         assertNotNull(response.getMetadata().get("Location").get(0));
-        String json = (String) response.getEntity();
+        String json = entityAsString(response);
 
         Map<String, Object> map = JsonHelper.jsonToMap(json);
 
@@ -94,23 +108,23 @@ public class WebServiceTest {
 
     @Test
     public void shouldRespondWith400WhenNodeCreatedWithUnsupportedPropertyData() {
-        Response response = service.createNode("{\"foo\" : {\"bar\" : \"baz\"}}");
+        Response response = service.createNode(body("{\"foo\" : {\"bar\" : \"baz\"}}"));
 
         assertEquals(400, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith400WhenNodeCreatedWithInvalidJSON() {
-        Response response = service.createNode("this:::isNot::JSON}");
+        Response response = service.createNode(body("this:::isNot::JSON}"));
 
         assertEquals(400, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith200AndNodeRepresentationInJSONWhenNodeRequested() throws Exception {
-        Response response = service.getNode(GraphDbHelper.createNode());
+        Response response = service.getNode(GraphDbHelper.createNode(), null);
         assertEquals(200, response.getStatus());
-        String json = (String) response.getEntity();
+        String json = entityAsString(response);
         Map<String, Object> map = JsonHelper.jsonToMap(json);
         assertNotNull(map);
         assertTrue(map.containsKey("self"));
@@ -118,32 +132,32 @@ public class WebServiceTest {
 
     @Test
     public void shouldRespondWith404WhenRequestedNodeDoesNotExist() throws Exception {
-        Response response = service.getNode(9000000000000L);
+        Response response = service.getNode(9000000000000L, null);
         assertEquals(404, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith200AfterSettingPropertiesOnExistingNode() throws Exception {
         Response response = service.setNodeProperties(GraphDbHelper.createNode(),
-                "{\"foo\" : \"bar\", \"a-boolean\": true, \"boolean-array\": [true, false, false]}");
+                body("{\"foo\" : \"bar\", \"a-boolean\": true, \"boolean-array\": [true, false, false]}"));
         assertEquals(200, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith404WhenSettingPropertiesOnNodeThatDoesNotExist() throws Exception {
-        Response response = service.setNodeProperties(9000000000000L, "{\"foo\" : \"bar\"}");
+        Response response = service.setNodeProperties(9000000000000L, body("{\"foo\" : \"bar\"}"));
         assertEquals(404, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith400WhenTransferringCorruptJsonPayload() throws Exception {
-        Response response = service.setNodeProperties(GraphDbHelper.createNode(), "{\"foo\" : bad-json-here \"bar\"}");
+        Response response = service.setNodeProperties(GraphDbHelper.createNode(), body("{\"foo\" : bad-json-here \"bar\"}"));
         assertEquals(400, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith400WhenTransferringIncompatibleJsonPayload() throws Exception {
-        Response response = service.setNodeProperties(GraphDbHelper.createNode(), "{\"foo\" : {\"bar\" : \"baz\"}}");
+        Response response = service.setNodeProperties(GraphDbHelper.createNode(), body("{\"foo\" : {\"bar\" : \"baz\"}}"));
         assertEquals(400, response.getStatus());
     }
 
@@ -173,16 +187,26 @@ public class WebServiceTest {
         properties.put("double", 15.7);
         GraphDbHelper.setNodeProperties(nodeId, properties);
         Response response = service.getNodeProperties(longValue(nodeId));
-        String jsonBody = response.getEntity().toString();
+        String jsonBody = entityAsString(response);
         Map<String, Object> readProperties = JsonHelper.jsonToMap(jsonBody);
         assertEquals(properties, readProperties);
     }
 
+    @Test
+    public void shouldSetContentLengthInBytesForNonAsciiProperties() throws Exception {
+        Object nodeId = GraphDbHelper.createNode();
+        GraphDbHelper.setNodeProperties(nodeId, Collections.<String, Object> singletonMap("name", "\u00e5\u00e4\u00f6 \u6771\u4eac"));
+        Response response = service.getNodeProperties(longValue(nodeId));
+        int expectedLength = entityAsString(response).getBytes("UTF-8").length;
+        assertEquals(String.valueOf(expectedLength), response.getMetadata().getFirst("Content-Length"));
+        assertTrue(expectedLength > entityAsString(response).length());
+    }
+
     @Test
     public void shouldRespondWith200OnSuccessfulDelete() {
         Object id = GraphDbHelper.createNode();
 
-        Response response = service.deleteNode(longValue(id));
+        Response response = service.deleteNode(longValue(id), false);
 
         assertEquals(200, response.getStatus());
     }
@@ -192,15 +216,29 @@ public class WebServiceTest {
         Object id = GraphDbHelper.createNode();
         GraphDbHelper.createRelationship("LOVES", id, GraphDbHelper.createNode());
 
-        Response response = service.deleteNode(longValue(id));
+        Response response = service.deleteNode(longValue(id), false);
 
         assertEquals(409, response.getStatus());
     }
 
+    @Test
+    public void shouldDeleteNodeWithRelationshipsWhenCascading() {
+        Object id = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("LOVES", id, GraphDbHelper.createNode());
+        GraphDbHelper.createRelationship("LOVES", GraphDbHelper.createNode(), id);
+        int relationshipCount = GraphDbHelper.getNumberOfRelationships();
+
+        Response response = service.deleteNode(longValue(id), true);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(relationshipCount - 2, GraphDbHelper.getNumberOfRelationships());
+        assertEquals(404, service.getNode(longValue(id), null).getStatus());
+    }
+
     @Test
     public void shouldRespondWith404IfNodeToBeDeletedDoesNotExist() {
         Object nonExistentId = 999999;
-        Response response = service.deleteNode(longValue(nonExistentId));
+        Response response = service.deleteNode(longValue(nonExistentId), false);
 
         assertEquals(404, response.getStatus());
     }
@@ -210,7 +248,7 @@ public class WebServiceTest {
         Object nodeId = GraphDbHelper.createNode();
         String key = "foo";
         String json = "\"bar\"";
-        Response response = service.setNodeProperty(longValue(nodeId), key, json);
+        Response response = service.setNodeProperty(longValue(nodeId), key, body(json));
         assertEquals(200, response.getStatus());
     }
 
@@ -220,7 +258,7 @@ public class WebServiceTest {
         String key = "foo";
         String value = "bar";
         String json = "\"" + value + "\"";
-        service.setNodeProperty(longValue(nodeId), key, json);
+        service.setNodeProperty(longValue(nodeId), key, body(json));
         Map<String, Object> readProperties = GraphDbHelper.getNodeProperties(nodeId);
         assertEquals(Collections.singletonMap(key, value), readProperties);
     }
@@ -229,7 +267,7 @@ public class WebServiceTest {
     public void shouldRespondWith404ForSetNodePropertyOnNonExistingNode() {
         String key = "foo";
         String json = "\"bar\"";
-        Response response = service.setNodeProperty(UNKNOWN_NODE, key, json);
+        Response response = service.setNodeProperty(UNKNOWN_NODE, key, body(json));
         assertEquals(404, response.getStatus());
     }
 
@@ -237,7 +275,7 @@ public class WebServiceTest {
     public void shouldRespondWith400ForSetNodePropertyWithInvalidJson() {
         String key = "foo";
         String json = "{invalid json";
-        Response response = service.setNodeProperty(UNKNOWN_NODE, key, json);
+        Response response = service.setNodeProperty(UNKNOWN_NODE, key, body(json));
         assertEquals(400, response.getStatus());
     }
 
@@ -272,15 +310,15 @@ public class WebServiceTest {
         Object value = "bar";
         GraphDbHelper.setNodeProperties(nodeId, Collections.singletonMap(key, value));
         Response response = service.getNodeProperty(longValue(nodeId), "foo");
-        assertEquals(JsonHelper.createJsonFrom(value), response.getEntity());
+        assertEquals(JsonHelper.createJsonFrom(value), entityAsString(response));
     }
 
     @Test
     public void shouldRespondWith201AndLocationWhenRelationshipIsCreatedWithoutProperties() {
         Object startNode = GraphDbHelper.createNode();
         Object endNode = GraphDbHelper.createNode();
-        Response response = service.createRelationship(longValue(startNode), "{\"to\" : \"" + WebServer.BASE_URI + endNode
-                + "\", \"type\" : \"LOVES\"}");
+        Response response = service.createRelationship(longValue(startNode), body("{\"to\" : \"" + WebServer.BASE_URI + endNode
+                + "\", \"type\" : \"LOVES\"}"));
         assertEquals(201, response.getStatus());
         assertNotNull(response.getMetadata().get("Location").get(0));
     }
@@ -289,8 +327,8 @@ public class WebServiceTest {
     public void shouldRespondWith201AndLocationWhenRelationshipIsCreatedWithProperties() {
         Object startNode = GraphDbHelper.createNode();
         Object endNode = GraphDbHelper.createNode();
-        Response response = service.createRelationship(longValue(startNode), "{\"to\" : \"" + WebServer.BASE_URI + endNode
-                + "\", \"type\" : \"LOVES\", \"properties\" : {\"foo\" : \"bar\"}}");
+        Response response = service.createRelationship(longValue(startNode), body("{\"to\" : \"" + WebServer.BASE_URI + endNode
+                + "\", \"type\" : \"LOVES\", \"properties\" : {\"foo\" : \"bar\"}}"));
         assertEquals(201, response.getStatus());
         assertNotNull(response.getMetadata().get("Location").get(0));
     }
@@ -299,9 +337,9 @@ public class WebServiceTest {
     public void shouldReturnRelationshipRepresentationWhenCreatingRelationship() throws Exception {
         Object startNode = GraphDbHelper.createNode();
         Object endNode = GraphDbHelper.createNode();
-        Response response = service.createRelationship(longValue(startNode), "{\"to\" : \"" + WebServer.BASE_URI + endNode
-                + "\", \"type\" : \"LOVES\", \"properties\" : {\"foo\" : \"bar\"}}");
-        Map<String, Object> map = JsonHelper.jsonToMap((String) response.getEntity());
+        Response response = service.createRelationship(longValue(startNode), body("{\"to\" : \"" + WebServer.BASE_URI + endNode
+                + "\", \"type\" : \"LOVES\", \"properties\" : {\"foo\" : \"bar\"}}"));
+        Map<String, Object> map = JsonHelper.jsonToMap(entityAsString(response));
 
         assertNotNull(map);
 
@@ -316,24 +354,24 @@ public class WebServiceTest {
     @Test
     public void shouldRespondWith404WhenTryingToCreateRelationshipFromNonExistentNode() {
         Object nodeId = GraphDbHelper.createNode();
-        Response response = service.createRelationship(UNKNOWN_NODE, "{\"to\" : \"" + WebServer.BASE_URI + nodeId
-                + "\", \"type\" : \"LOVES\"}");
+        Response response = service.createRelationship(UNKNOWN_NODE, body("{\"to\" : \"" + WebServer.BASE_URI + nodeId
+                + "\", \"type\" : \"LOVES\"}"));
         assertEquals(404, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith400WhenTryingToCreateRelationshipToNonExistentNode() {
         Object nodeId = GraphDbHelper.createNode();
-        Response response = service.createRelationship(longValue(nodeId), "{\"to\" : \"" + WebServer.BASE_URI + (1000)
-                + "\", \"type\" : \"LOVES\"}");
+        Response response = service.createRelationship(longValue(nodeId), body("{\"to\" : \"" + WebServer.BASE_URI + (1000)
+                + "\", \"type\" : \"LOVES\"}"));
         assertEquals(400, response.getStatus());
     }
 
     @Test
     public void shouldRespondWith400WhenTryingToCreateRelationshipToStartNode() {
         Object nodeId = GraphDbHelper.createNode();
-        Response response = service.createRelationship(longValue(nodeId), "{\"to\" : \"" + WebServer.BASE_URI + nodeId
-                + "\", \"type\" : \"LOVES\"}");
+        Response response = service.createRelationship(longValue(nodeId), body("{\"to\" : \"" + WebServer.BASE_URI + nodeId
+                + "\", \"type\" : \"LOVES\"}"));
         assertEquals(400, response.getStatus());
     }
 
@@ -341,8 +379,17 @@ public class WebServiceTest {
     public void shouldRespondWith400WhenTryingToCreateRelationshipWithBadJson() {
         Object startNode = GraphDbHelper.createNode();
         Object endNode = GraphDbHelper.createNode();
-        Response response = service.createRelationship(longValue(startNode), "{\"to\" : \"" + WebServer.BASE_URI + endNode
-                + "\", \"type\" ***and junk*** : \"LOVES\"}");
+        Response response = service.createRelationship(longValue(startNode), body("{\"to\" : \"" + WebServer.BASE_URI + endNode
+                + "\", \"type\" ***and junk*** : \"LOVES\"}"));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void shouldRespondWith400WhenTryingToCreateRelationshipWithoutType() {
+        Object startNode = GraphDbHelper.createNode();
+        Object endNode = GraphDbHelper.createNode();
+        Response response = service.createRelationship(longValue(startNode), body("{\"to\" : \"" + WebServer.BASE_URI + endNode
+                + "\"}"));
         assertEquals(400, response.getStatus());
     }
 
@@ -350,8 +397,8 @@ public class WebServiceTest {
     public void shouldRespondWith400WhenTryingToCreateRelationshipWithUnsupportedProperties() {
         Object startNode = GraphDbHelper.createNode();
         Object endNode = GraphDbHelper.createNode();
-        Response response = service.createRelationship(longValue(startNode), "{\"to\" : \"" + WebServer.BASE_URI + endNode
-                + "\", \"type\" : \"LOVES\", \"properties\" : {\"foo\" : {\"bar\" : \"baz\"}}}");
+        Response response = service.createRelationship(longValue(startNode), body("{\"to\" : \"" + WebServer.BASE_URI + endNode
+                + "\", \"type\" : \"LOVES\", \"properties\" : {\"foo\" : {\"bar\" : \"baz\"}}}"));
         assertEquals(400, response.getStatus());
     }
 
@@ -417,13 +464,13 @@ public class WebServiceTest {
     @Test
     public void shouldGet200WhenRetrievingARelationshipFromANode() {
         RelationshipRepresentation relationshipId = GraphDbHelper.createRelationship("BEATS");
-        Response response = service.getRelationship(longValue(relationshipId.getStartNodeId()),relationshipId.getType());
+        Response response = service.getRelationship(longValue(relationshipId.getStartNodeId()),relationshipId.getType(), null);
         assertEquals(200, response.getStatus());
     }
 
     @Test
     public void shouldGet404WhenRetrievingRelationshipThatDoesNotExist() {
-        Response response = service.getRelationship(UNKNOWN_NODE,"BEATS");
+        Response response = service.getRelationship(UNKNOWN_NODE,"BEATS", null);
         assertEquals(404, response.getStatus());
     }
 
@@ -435,7 +482,7 @@ public class WebServiceTest {
         GraphDbHelper.setRelationshipProperties(representation, properties);
         Response response = service.getRelationshipProperties(longValue(representation.getStartNodeId()),representation.getType());
         assertEquals(200, response.getStatus());
-        Map<String, Object> readProperties = JsonHelper.jsonToMap(response.getEntity().toString());
+        Map<String, Object> readProperties = JsonHelper.jsonToMap(entityAsString(response));
         assertEquals(properties, readProperties);
     }
 
@@ -457,7 +504,7 @@ public class WebServiceTest {
         Response response = service.getRelationshipProperty(longValue(relationshipId.getStartNodeId()),relationshipId.getType(), "some-key");
 
         assertEquals(200, response.getStatus());
-        assertEquals("some-value", JsonHelper.jsonToSingleValue((String) response.getEntity()));
+        assertEquals("some-value", JsonHelper.jsonToSingleValue(entityAsString(response)));
     }
 
     @Test
@@ -483,6 +530,88 @@ public class WebServiceTest {
         assertEquals(404, response.getStatus());
     }
 
+    @Test
+    public void shouldGet200AndRelationshipWhenRetrievingARelationshipById() throws Exception {
+        RelationshipRepresentation relationship = GraphDbHelper.createRelationship("BEATS");
+        Response response = service.getRelationshipById(longValue(relationship.getId()), null);
+        assertEquals(200, response.getStatus());
+        Map<String, Object> map = JsonHelper.jsonToMap(entityAsString(response));
+        assertTrue(((String) map.get("self")).endsWith("relationships/" + relationship.getId()));
+        assertEquals("BEATS", map.get("type"));
+    }
+
+    @Test
+    public void shouldGet404WhenRetrievingARelationshipByIdThatDoesNotExist() {
+        Response response = service.getRelationshipById(UNKNOWN_NODE, null);
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void shouldGet404WhenRetrievingARelationshipByIdAfterRemovingIt() {
+        RelationshipRepresentation relationship = GraphDbHelper.createRelationship("KNOWS");
+        Long id = longValue(relationship.getId());
+
+        assertEquals(200, service.removeRelationshipById(id).getStatus());
+        assertEquals(404, service.getRelationshipById(id, null).getStatus());
+        assertEquals(404, service.removeRelationshipById(id).getStatus());
+    }
+
+    @Test
+    public void shouldSetReadAndRemoveRelationshipPropertiesById() throws Exception {
+        RelationshipRepresentation relationship = GraphDbHelper.createRelationship("knows");
+        Long id = longValue(relationship.getId());
+
+        assertEquals(200, service.setRelationshipPropertiesById(id, body("{\"foo\" : \"bar\", \"n\" : 1}")).getStatus());
+        Response response = service.getRelationshipPropertiesById(id);
+        assertEquals(200, response.getStatus());
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("foo", "bar");
+        expected.put("n", 1);
+        assertEquals(expected, JsonHelper.jsonToMap(entityAsString(response)));
+
+        assertEquals(200, service.patchRelationshipPropertiesById(id, body("{\"foo\" : null, \"bar\" : true}")).getStatus());
+        expected.remove("foo");
+        expected.put("bar", true);
+        assertEquals(expected, GraphDbHelper.getRelationshipProperties(relationship.getStartNodeId(), "knows"));
+
+        assertEquals(200, service.removeRelationshipPropertiesById(id).getStatus());
+        assertEquals(204, service.getRelationshipPropertiesById(id).getStatus());
+    }
+
+    @Test
+    public void shouldSetReadAndRemoveARelationshipPropertyById() throws Exception {
+        RelationshipRepresentation relationship = GraphDbHelper.createRelationship("knows");
+        Long id = longValue(relationship.getId());
+
+        assertEquals(200, service.setRelationshipPropertyById(id, "name", body("\"Mattias\"")).getStatus());
+        Response response = service.getRelationshipPropertyById(id, "name");
+        assertEquals(200, response.getStatus());
+        assertEquals("Mattias", JsonHelper.jsonToSingleValue(entityAsString(response)));
+
+        assertEquals(200, service.removeRelationshipPropertyById(id, "name").getStatus());
+        assertEquals(404, service.removeRelationshipPropertyById(id, "name").getStatus());
+        assertEquals(404, service.getRelationshipPropertyById(id, "name").getStatus());
+    }
+
+    @Test
+    public void shouldGet404WhenWritingPropertiesOfARelationshipByIdThatDoesNotExist() {
+        assertEquals(404, service.setRelationshipPropertiesById(UNKNOWN_NODE, body("{\"foo\" : \"bar\"}")).getStatus());
+        assertEquals(404, service.setRelationshipPropertyById(UNKNOWN_NODE, "foo", body("\"bar\"")).getStatus());
+        assertEquals(404, service.removeRelationshipPropertiesById(UNKNOWN_NODE).getStatus());
+        assertEquals(404, service.removeRelationshipPropertyById(UNKNOWN_NODE, "foo").getStatus());
+    }
+
+    @Test
+    public void shouldChangeRelationshipETagWhenItsPropertiesChange() {
+        RelationshipRepresentation relationship = GraphDbHelper.createRelationship("knows");
+        Long id = longValue(relationship.getId());
+        Object tag = service.getRelationshipById(id, null).getMetadata().getFirst("ETag");
+
+        service.setRelationshipPropertyById(id, "name", body("\"Mattias\""));
+
+        assertFalse(tag.equals(service.getRelationshipById(id, null).getMetadata().getFirst("ETag")));
+    }
+
     @Test
     public void shouldRespondWith200AndListOfRelationshipRepresentationsWhenGettingRelationshipsForANode() {
         Long nodeId = GraphDbHelper.createNode();
@@ -490,25 +619,25 @@ public class WebServiceTest {
         GraphDbHelper.createRelationship("LIKES", GraphDbHelper.createNode(), nodeId);
         GraphDbHelper.createRelationship("HATES", nodeId, GraphDbHelper.createNode());
 
-        Response response = service.getRelationships(longValue(nodeId), RelationshipDirection.all, new AmpersandSeparatedList());
+        Response response = service.getRelationships(longValue(nodeId), RelationshipDirection.all, new AmpersandSeparatedList(), null, null, null);
         assertEquals(200, response.getStatus());
-        verifyRelReps(3, (String) response.getEntity());
+        verifyRelReps(3, entityAsString(response));
 
-        response = service.getRelationships(longValue(nodeId), RelationshipDirection.in, new AmpersandSeparatedList());
+        response = service.getRelationships(longValue(nodeId), RelationshipDirection.in, new AmpersandSeparatedList(), null, null, null);
         assertEquals(200, response.getStatus());
-        verifyRelReps(1, (String) response.getEntity());
+        verifyRelReps(1, entityAsString(response));
 
-        response = service.getRelationships(longValue(nodeId), RelationshipDirection.out, new AmpersandSeparatedList());
+        response = service.getRelationships(longValue(nodeId), RelationshipDirection.out, new AmpersandSeparatedList(), null, null, null);
         assertEquals(200, response.getStatus());
-        verifyRelReps(2, (String) response.getEntity());
+        verifyRelReps(2, entityAsString(response));
 
-        response = service.getRelationships(longValue(nodeId), RelationshipDirection.out, new AmpersandSeparatedList("LIKES&HATES"));
+        response = service.getRelationships(longValue(nodeId), RelationshipDirection.out, new AmpersandSeparatedList("LIKES&HATES"), null, null, null);
         assertEquals(200, response.getStatus());
-        verifyRelReps(2, (String) response.getEntity());
+        verifyRelReps(2, entityAsString(response));
 
-        response = service.getRelationships(longValue(nodeId), RelationshipDirection.all, new AmpersandSeparatedList("LIKES"));
+        response = service.getRelationships(longValue(nodeId), RelationshipDirection.all, new AmpersandSeparatedList("LIKES"), null, null, null);
         assertEquals(200, response.getStatus());
-        verifyRelReps(2, (String) response.getEntity());
+        verifyRelReps(2, entityAsString(response));
     }
 
     private void verifyRelReps(int expectedSize, String entity) {
@@ -523,14 +652,14 @@ public class WebServiceTest {
     public void shouldRespondWith200AndEmptyListOfRelationshipRepresentationsWhenGettingRelationshipsForANodeWithoutRelationships() {
         Long nodeId = GraphDbHelper.createNode();
 
-        Response response = service.getRelationships(longValue(nodeId), RelationshipDirection.all, new AmpersandSeparatedList());
+        Response response = service.getRelationships(longValue(nodeId), RelationshipDirection.all, new AmpersandSeparatedList(), null, null, null);
         assertEquals(200, response.getStatus());
-        verifyRelReps(0, (String) response.getEntity());
+        verifyRelReps(0, entityAsString(response));
     }
 
     @Test
     public void shouldRespondWith404WhenGettingIncomingRelationshipsForNonExistingNode() {
-        Response response = service.getRelationships(UNKNOWN_NODE, RelationshipDirection.all, new AmpersandSeparatedList());
+        Response response = service.getRelationships(UNKNOWN_NODE, RelationshipDirection.all, new AmpersandSeparatedList(), null, null, null);
         assertEquals(404, response.getStatus());
     }
     
@@ -539,7 +668,7 @@ public class WebServiceTest {
     {
         RelationshipRepresentation relationshipId = GraphDbHelper.createRelationship( "KNOWS" );
         String json = "{\"name\": \"Mattias\", \"age\": 30}";
-        Response response = service.setRelationshipProperties(longValue(relationshipId.getStartNodeId()),relationshipId.getType(), json );
+        Response response = service.setRelationshipProperties(longValue(relationshipId.getStartNodeId()),relationshipId.getType(), body(json) );
         assertEquals( 200, response.getStatus() );
         Map<String, Object> setProperties = new HashMap<String, Object>();
         setProperties.put( "name", "Mattias" );
@@ -552,7 +681,7 @@ public class WebServiceTest {
     {
         RelationshipRepresentation relationshipId = GraphDbHelper.createRelationship( "KNOWS" );
         String json = "{\"name: \"Mattias\", \"age\": 30}";
-        Response response = service.setRelationshipProperties(longValue(relationshipId.getStartNodeId()),relationshipId.getType(), json );
+        Response response = service.setRelationshipProperties(longValue(relationshipId.getStartNodeId()),relationshipId.getType(), body(json) );
         assertEquals( 400, response.getStatus() );
     }
     
@@ -560,7 +689,7 @@ public class WebServiceTest {
     public void shouldRespondWith404WhenSettingRelationshipPropertiesOnNonExistingRelationship()
     {
         String json = "{\"name\": \"Mattias\", \"age\": 30}";
-        Response response = service.setRelationshipProperties( UNKNOWN_NODE,"knows", json );
+        Response response = service.setRelationshipProperties( UNKNOWN_NODE,"knows", body(json) );
         assertEquals( 404, response.getStatus() );
     }
     
@@ -571,7 +700,7 @@ public class WebServiceTest {
         String key = "name";
         Object value = "Mattias";
         String json = "\"" + value + "\"";
-        Response response = service.setRelationshipProperty( longValue(relationshipId.getStartNodeId()),relationshipId.getType(), key, json );
+        Response response = service.setRelationshipProperty( longValue(relationshipId.getStartNodeId()),relationshipId.getType(), key, body(json) );
         assertEquals( 200, response.getStatus() );
         assertEquals( value, GraphDbHelper.getRelationshipProperties(longValue(relationshipId.getStartNodeId()),relationshipId.getType()).get( "name" ) );
     }
@@ -581,7 +710,7 @@ public class WebServiceTest {
     {
         RelationshipRepresentation relationshipId = GraphDbHelper.createRelationship( "KNOWS" );
         String json = "}Mattias";
-        Response response = service.setRelationshipProperty( longValue(relationshipId.getStartNodeId()),relationshipId.getType(), "name", json );
+        Response response = service.setRelationshipProperty( longValue(relationshipId.getStartNodeId()),relationshipId.getType(), "name", body(json) );
         assertEquals( 400, response.getStatus() );
     }
     
@@ -589,7 +718,7 @@ public class WebServiceTest {
     public void shouldRespondWith404WhenSettingRelationshipPropertyOnNonExistingRelationship()
     {
         String json = "\"Mattias\"";
-        Response response = service.setRelationshipProperty(UNKNOWN_NODE,"knows", "name", json );
+        Response response = service.setRelationshipProperty(UNKNOWN_NODE,"knows", "name", body(json) );
         assertEquals( 404, response.getStatus() );
     }
     
@@ -646,6 +775,125 @@ public class WebServiceTest {
         assertEquals(404, response.getStatus());
     }
 
+    @Test
+    public void shouldPageThroughRelationshipsWithCursorsFromLinkHeaders() {
+        Long nodeId = GraphDbHelper.createNode();
+        for (int i = 0; i < 5; i++) {
+            GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+        }
+
+        Response first = service.getRelationships(nodeId, RelationshipDirection.all, 2, null, null);
+        verifyRelReps(2, entityAsString(first));
+        String link = (String) first.getMetadata().getFirst("Link");
+        assertTrue(link.endsWith("; rel=\"next\""));
+
+        Response second = service.getRelationships(nodeId, RelationshipDirection.all, 2, cursorIn(link), null);
+        verifyRelReps(2, entityAsString(second));
+        link = (String) second.getMetadata().getFirst("Link");
+
+        Response last = service.getRelationships(nodeId, RelationshipDirection.all, 2, cursorIn(link), null);
+        verifyRelReps(1, entityAsString(last));
+        assertNull(last.getMetadata().getFirst("Link"));
+    }
+
+    @Test
+    public void shouldRespondWith400ForNonPositiveLimitOrInvalidCursor() {
+        Long nodeId = GraphDbHelper.createNode();
+        assertEquals(400, service.getRelationships(nodeId, RelationshipDirection.all, 0, null, null).getStatus());
+        assertEquals(400, service.getRelationships(nodeId, RelationshipDirection.all, 10, "not-a-cursor", null).getStatus());
+
+        Long otherNodeId = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("LIKES", otherNodeId, GraphDbHelper.createNode());
+        GraphDbHelper.createRelationship("LIKES", otherNodeId, GraphDbHelper.createNode());
+        String link = (String) service.getRelationships(otherNodeId, RelationshipDirection.all, 1, null, null).getMetadata().getFirst("Link");
+        assertEquals(400, service.getRelationships(nodeId, RelationshipDirection.all, 10, cursorIn(link), null).getStatus());
+    }
+
+    private static String cursorIn(String link) {
+        String query = link.substring(link.indexOf('?') + 1, link.indexOf('>'));
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("cursor=")) return parameter.substring("cursor=".length());
+        }
+        return null;
+    }
+
+    @Test
+    public void shouldRespondWith304WhenNodeIsUnchangedSinceItsETag() {
+        Long nodeId = GraphDbHelper.createNode();
+        final Request request = mock(Request.class);
+        for (Response current : asList(service.getNode(nodeId, null), service.getNodeProperties(nodeId),
+                service.getRelationships(nodeId, RelationshipDirection.all, null, null, null))) {
+            EntityTag tag = (EntityTag) current.getMetadata().getFirst("ETag");
+            assertNotNull(tag);
+            when(request.evaluatePreconditions(tag)).thenAnswer(new Answer<Response.ResponseBuilder>() {
+                public Response.ResponseBuilder answer(InvocationOnMock invocation) {
+                    return Response.notModified((EntityTag) invocation.getArguments()[0]);
+                }
+            });
+        }
+        WebService conditional = new WebService(uriInfo(), null, request);
+
+        assertEquals(304, conditional.getNode(nodeId, null).getStatus());
+        assertEquals("Accept, Accept-Encoding", conditional.getNode(nodeId, null).getMetadata().getFirst("Vary"));
+        assertEquals(304, conditional.getNodeProperties(nodeId).getStatus());
+        assertEquals(304, conditional.getRelationships(nodeId, RelationshipDirection.all, null, null, null).getStatus());
+
+        conditional.setNodeProperty(nodeId, "foo", body("\"bar\""));
+        assertEquals(200, conditional.getNode(nodeId, null).getStatus());
+    }
+
+    @Test
+    public void shouldVaryETagWithFormatAndContentCoding() {
+        Long nodeId = GraphDbHelper.createNode();
+
+        Object json = service.getNode(nodeId, null).getMetadata().getFirst("ETag");
+        Object smile = new WebService(uriInfo(), accepting(RepresentationFormat.APPLICATION_SMILE, null), null)
+                .getNode(nodeId, null).getMetadata().getFirst("ETag");
+        Object gzippedJson = new WebService(uriInfo(), accepting(MediaType.APPLICATION_JSON, "gzip"), null)
+                .getNode(nodeId, null).getMetadata().getFirst("ETag");
+
+        assertFalse(json.equals(smile));
+        assertFalse(json.equals(gzippedJson));
+        assertFalse(smile.equals(gzippedJson));
+        assertEquals("Accept, Accept-Encoding", service.getNode(nodeId, null).getMetadata().getFirst("Vary"));
+    }
+
+    @Test
+    public void shouldVaryETagWithPageOfRelationshipListing() {
+        Long nodeId = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+        GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+
+        Response first = service.getRelationships(nodeId, RelationshipDirection.all, 1, null, null);
+        String cursor = cursorIn((String) first.getMetadata().getFirst("Link"));
+        Response second = service.getRelationships(nodeId, RelationshipDirection.all, 1, cursor, null);
+
+        assertFalse(first.getMetadata().getFirst("ETag").equals(second.getMetadata().getFirst("ETag")));
+    }
+
+    @Test
+    public void shouldChangeETagForWritesMadeThroughAnotherBaseUri() {
+        Long nodeId = GraphDbHelper.createNode();
+        Object tag = service.getNode(nodeId, null).getMetadata().getFirst("ETag");
+
+        new WebService(uriInfo("http://127.0.0.1:9999/")).setNodeProperty(nodeId, "foo", body("\"bar\""));
+
+        assertFalse(tag.equals(service.getNode(nodeId, null).getMetadata().getFirst("ETag")));
+    }
+
+    @Test
+    public void shouldChangeETagOfBothNodesWhenRelationshipIsCreated() {
+        Long startNode = GraphDbHelper.createNode();
+        Long endNode = GraphDbHelper.createNode();
+        Object startTag = service.getNode(startNode, null).getMetadata().getFirst("ETag");
+        Object endTag = service.getNode(endNode, null).getMetadata().getFirst("ETag");
+
+        service.createRelationship(startNode, body("{\"to\" : \"" + WebServer.BASE_URI + endNode + "\", \"type\" : \"LOVES\"}"));
+
+        assertFalse(startTag.equals(service.getNode(startNode, null).getMetadata().getFirst("ETag")));
+        assertFalse(endTag.equals(service.getNode(endNode, null).getMetadata().getFirst("ETag")));
+    }
+
     @Test
     public void shouldRespondWith200AndResultRepresentationInJSONWhenNodeAndEvalPropertyNameRequested() throws Exception {
         final long nodeId = GraphDbHelper.createNode();
@@ -654,17 +902,388 @@ public class WebServiceTest {
 
         Response response = service.evaluate(nodeId,"/@name");
         assertEquals(200, response.getStatus());
-        String json = (String) response.getEntity();
+        String json = entityAsString(response);
         List<Object> result = JsonHelper.jsonToList(json);
         assertNotNull(result);
         assertEquals(1,result.size());
         assertEquals("neo",result.get(0));
     }
 
+    @Test
+    public void shouldExecuteBatchWithReferencesToNodesCreatedEarlierInTheBatch() throws Exception {
+        int nodesBefore = GraphDbHelper.getNumberOfNodes();
+        int relationshipsBefore = GraphDbHelper.getNumberOfRelationships();
+        Response response = service.batch(body("[{\"op\": \"createNode\", \"properties\": {\"name\": \"neo\"}}," +
+                "{\"op\": \"createNode\"}," +
+                "{\"op\": \"createRelationship\", \"from\": \"{0}\", \"to\": \"{1}\", \"type\": \"KNOWS\"}," +
+                "{\"op\": \"setNodeProperty\", \"node\": \"{1}\", \"key\": \"name\", \"value\": \"trinity\"}]"));
+
+        assertEquals(200, response.getStatus());
+        List<Object> results = JsonHelper.jsonToList(entityAsString(response));
+        assertEquals(4, results.size());
+        assertNull(results.get(3));
+        assertEquals(nodesBefore + 2, GraphDbHelper.getNumberOfNodes());
+        assertEquals(relationshipsBefore + 1, GraphDbHelper.getNumberOfRelationships());
+
+        @SuppressWarnings("unchecked")
+        String secondNode = (String) ((Map<String, Object>) results.get(1)).get("self");
+        Object secondNodeId = Long.parseLong(secondNode.substring(secondNode.lastIndexOf('/') + 1));
+        assertEquals("trinity", GraphDbHelper.getNodeProperties(secondNodeId).get("name"));
+    }
+
+    @Test
+    public void shouldRollBackWholeBatchAndNameFailingOperation() throws Exception {
+        int nodesBefore = GraphDbHelper.getNumberOfNodes();
+        Response response = service.batch(body("[{\"op\": \"createNode\"}," +
+                "{\"op\": \"setNodeProperty\", \"node\": " + UNKNOWN_NODE + ", \"key\": \"a\", \"value\": 1}]"));
+
+        assertEquals(404, response.getStatus());
+        assertEquals(1, JsonHelper.jsonToMap(entityAsString(response)).get("operation"));
+        assertEquals(nodesBefore, GraphDbHelper.getNumberOfNodes());
+    }
+
+    @Test
+    public void shouldRespondWith400ForUnknownBatchOperation() throws Exception {
+        Response response = service.batch(body("[{\"op\": \"frobnicate\"}]"));
+
+        assertEquals(400, response.getStatus());
+        assertEquals(0, JsonHelper.jsonToMap(entityAsString(response)).get("operation"));
+    }
+
+    @Test
+    public void shouldRollBackWholeBatchWhenAnElementIsNotAnOperation() throws Exception {
+        int nodesBefore = GraphDbHelper.getNumberOfNodes();
+        Response response = service.batch(body("[{\"op\": \"createNode\"}, 5, {\"op\": \"createNode\"}]"));
+
+        assertEquals(400, response.getStatus());
+        assertEquals(1, JsonHelper.jsonToMap(entityAsString(response)).get("operation"));
+        assertEquals(nodesBefore, GraphDbHelper.getNumberOfNodes());
+    }
+
+    @Test
+    public void shouldStreamImportProgressAndReportCompletion() throws Exception {
+        int nodesBefore = GraphDbHelper.getNumberOfNodes();
+        Response response = service.importElements(body("{\"node\": \"a\"}\n{\"node\": \"b\"}\n" +
+                "{\"from\": \"a\", \"to\": \"b\", \"type\": \"KNOWS\"}\n"), 2);
+
+        assertEquals(200, response.getStatus());
+        String[] lines = entityAsString(response).split("\n");
+        assertEquals(3, lines.length);
+        Map<String, Object> last = JsonHelper.jsonToMap(lines[2]);
+        assertEquals(2, last.get("nodes"));
+        assertEquals(1, last.get("relationships"));
+        assertEquals(true, last.get("done"));
+        assertEquals(nodesBefore + 2, GraphDbHelper.getNumberOfNodes());
+    }
+
+    @Test
+    public void shouldReportFailingImportLine() throws Exception {
+        Response response = service.importElements(body("{\"node\": \"a\"}\n{\"from\": \"a\", \"to\": \"b\", \"type\": \"KNOWS\"}\n"), null);
+
+        Map<String, Object> last = JsonHelper.jsonToMap(entityAsString(response).trim());
+        assertEquals(2, last.get("line"));
+        assertEquals(0, last.get("nodes"));
+        assertNotNull(last.get("error"));
+    }
+
+    @Test
+    public void shouldRespondWith200AndEndWithErrorRecordWhenImportFailsAfterCommittedChunks() throws Exception {
+        Response response = service.importElements(body("{\"node\": \"a\"}\n{\"node\": \"b\"}\n" +
+                "{\"from\": \"a\", \"to\": \"b\", \"typ\": \"KNOWS\"}\n"), 1);
+
+        assertEquals(200, response.getStatus());
+        String[] lines = entityAsString(response).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(1, JsonHelper.jsonToMap(lines[0]).get("nodes"));
+        Map<String, Object> last = JsonHelper.jsonToMap(lines[2]);
+        assertEquals(2, last.get("nodes"));
+        assertEquals(3, last.get("line"));
+        assertTrue(String.valueOf(last.get("error")).contains("typ"));
+        assertNull(last.get("done"));
+    }
+
+    @Test
+    public void shouldRespondWith400ForNonPositiveImportChunkSize() throws Exception {
+        assertEquals(400, service.importElements(body(""), 0).getStatus());
+    }
+
+    @Test
+    public void shouldMergePatchIntoNodeProperties() throws Exception {
+        Object nodeId = GraphDbHelper.createNode();
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("keep", "kept");
+        properties.put("change", "old");
+        properties.put("remove", "removed");
+        GraphDbHelper.setNodeProperties(nodeId, properties);
+
+        Response response = service.patchNodeProperties(longValue(nodeId),
+                body("{\"change\": \"new\", \"remove\": null}"));
+
+        assertEquals(200, response.getStatus());
+        Map<String, Object> patched = GraphDbHelper.getNodeProperties(nodeId);
+        assertEquals("kept", patched.get("keep"));
+        assertEquals("new", patched.get("change"));
+        assertFalse(patched.containsKey("remove"));
+    }
+
+    @Test
+    public void shouldKeepEntityTagForPatchThatChangesNothing() throws Exception {
+        Object nodeId = GraphDbHelper.createNode();
+        service.patchNodeProperties(longValue(nodeId), body("{\"foo\": \"bar\"}"));
+        Object tag = service.getNode(longValue(nodeId), null).getMetadata().getFirst("ETag");
+        assertNotNull(tag);
+
+        service.patchNodeProperties(longValue(nodeId), body("{\"foo\": \"bar\"}"));
+
+        assertEquals(tag, service.getNode(longValue(nodeId), null).getMetadata().getFirst("ETag"));
+    }
+
+    @Test
+    public void shouldRespondWith404ForPatchOfUnknownNode() {
+        assertEquals(404, service.patchNodeProperties(UNKNOWN_NODE, body("{\"foo\": \"bar\"}")).getStatus());
+    }
+
+    @Test
+    public void shouldMergePatchIntoRelationshipProperties() throws Exception {
+        Object startNode = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("KNOWS", startNode, GraphDbHelper.createNode());
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("keep", "kept");
+        properties.put("remove", "removed");
+        GraphDbHelper.setRelationshipProperties(startNode, "KNOWS", properties);
+
+        Response response = service.patchRelationshipProperties(longValue(startNode), "KNOWS",
+                body("{\"since\": 1999, \"remove\": null}"));
+
+        assertEquals(200, response.getStatus());
+        Map<String, Object> patched = GraphDbHelper.getRelationshipProperties(startNode, "KNOWS");
+        assertEquals("kept", patched.get("keep"));
+        assertEquals(1999, patched.get("since"));
+        assertFalse(patched.containsKey("remove"));
+    }
+
+    @Test
+    public void shouldOnlyIncludeRequestedFieldsInNode() throws Exception {
+        Object nodeId = GraphDbHelper.createNode();
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("name", "neo");
+        properties.put("age", 30);
+        properties.put("bio", "long text");
+        GraphDbHelper.setNodeProperties(nodeId, properties);
+
+        Response response = service.getNode(longValue(nodeId), new CommaSeparatedList("name,age,missing"));
+
+        Map<String, Object> data = dataOf(JsonHelper.jsonToMap(entityAsString(response)));
+        assertEquals(2, data.size());
+        assertEquals("neo", data.get("name"));
+        assertEquals(30, data.get("age"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldGet200WithFoundNodesAndMissingIdsWhenRetrievingManyNodes() throws Exception {
+        Long first = GraphDbHelper.createNode();
+        Long second = GraphDbHelper.createNode();
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("name", "neo");
+        properties.put("age", 30);
+        GraphDbHelper.setNodeProperties(second, properties);
+
+        Response response = service.getNodes(new CommaSeparatedList(second + "," + UNKNOWN_NODE + "," + first + "," + second),
+                new CommaSeparatedList("name"));
+
+        assertEquals(200, response.getStatus());
+        Map<String, Object> result = JsonHelper.jsonToMap(entityAsString(response));
+        List<Map<String, Object>> nodes = (List<Map<String, Object>>) result.get("nodes");
+        assertEquals(2, nodes.size());
+        assertEquals(Collections.singletonMap("name", (Object) "neo"), dataOf(nodes.get(0)));
+        assertTrue(((String) nodes.get(1).get("self")).endsWith("/" + first));
+        assertEquals(asList(UNKNOWN_NODE.intValue()), result.get("missing"));
+    }
+
+    @Test
+    public void shouldGet400WhenRetrievingManyNodesWithoutValidIds() {
+        assertEquals(400, service.getNodes(null, null).getStatus());
+        assertEquals(400, service.getNodes(new CommaSeparatedList("1,two"), null).getStatus());
+    }
+
+    @Test
+    public void shouldOnlyIncludeRequestedFieldsInRelationshipListings() throws Exception {
+        Object nodeId = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("LIKES", nodeId, GraphDbHelper.createNode());
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("since", 1999);
+        properties.put("note", "long text");
+        GraphDbHelper.setRelationshipProperties(nodeId, "LIKES", properties);
+        CommaSeparatedList fields = new CommaSeparatedList("since");
+
+        for (Response response : asList(
+                service.getRelationships(longValue(nodeId), RelationshipDirection.all, null, null, fields),
+                service.getRelationships(longValue(nodeId), RelationshipDirection.all, 10, null, fields))) {
+            List<Map<String, Object>> relationships = JsonHelper.jsonToListOfRelationshipRepresentations(entityAsString(response));
+            assertEquals(1, relationships.size());
+            assertEquals(Collections.singletonMap("since", (Object) 1999), dataOf(relationships.get(0)));
+        }
+    }
+
+    @Test
+    public void shouldReturnNeighborhoodToRequestedDepth() throws Exception {
+        Object root = GraphDbHelper.createNode();
+        Object friend = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("KNOWS", root, friend);
+        GraphDbHelper.createRelationship("KNOWS", friend, GraphDbHelper.createNode());
+
+        Response oneHop = service.getNeighborhood(longValue(root), Collections.<String>emptyList(), 1,
+                RelationshipDirection.all, null, null);
+        Response twoHops = service.getNeighborhood(longValue(root), asList("out:KNOWS", "out"), 1,
+                RelationshipDirection.all, null, null);
+
+        assertEquals(200, oneHop.getStatus());
+        Map<String, Object> neighborhood = JsonHelper.jsonToMap(entityAsString(oneHop));
+        assertEquals(2, ((List<?>) neighborhood.get("nodes")).size());
+        assertEquals(1, ((List<?>) neighborhood.get("relationships")).size());
+        neighborhood = JsonHelper.jsonToMap(entityAsString(twoHops));
+        assertEquals(3, ((List<?>) neighborhood.get("nodes")).size());
+        assertEquals(2, ((List<?>) neighborhood.get("relationships")).size());
+    }
+
+    @Test
+    public void shouldRespondWith400ForInvalidHops() {
+        Long node = GraphDbHelper.createNode();
+        assertEquals(400, service.getNeighborhood(node, asList("sideways"), 1, RelationshipDirection.all, null, null).getStatus());
+        assertEquals(400, service.getNeighborhood(node, Collections.<String>emptyList(), 0, RelationshipDirection.all, null, null).getStatus());
+    }
+
+    @Test
+    public void shouldRespondWith400ForNeighborhoodDeeperThanTheCap() {
+        Long node = GraphDbHelper.createNode();
+        List<String> noHops = Collections.emptyList();
+        int maxDepth = WebService.DEFAULT_MAX_NEIGHBORHOOD_DEPTH;
+        assertEquals(200, service.getNeighborhood(node, noHops, maxDepth, RelationshipDirection.all, null, null).getStatus());
+        assertEquals(400, service.getNeighborhood(node, noHops, maxDepth + 1, RelationshipDirection.all, null, null).getStatus());
+        assertEquals(400, service.getNeighborhood(node, Collections.nCopies(maxDepth + 1, "out"), 1,
+                RelationshipDirection.all, null, null).getStatus());
+
+        System.setProperty(WebService.MAX_NEIGHBORHOOD_DEPTH_PROPERTY, "2");
+        try {
+            assertEquals(400, service.getNeighborhood(node, noHops, 3, RelationshipDirection.all, null, null).getStatus());
+        } finally {
+            System.clearProperty(WebService.MAX_NEIGHBORHOOD_DEPTH_PROPERTY);
+        }
+    }
+
+    @Test
+    public void shouldRespondWith404ForNeighborhoodOfUnknownNode() {
+        assertEquals(404, service.getNeighborhood(UNKNOWN_NODE, Collections.<String>emptyList(), 1,
+                RelationshipDirection.all, null, null).getStatus());
+    }
+
+    @Test
+    public void shouldReturnShortestPathAsUris() throws Exception {
+        Long start = GraphDbHelper.createNode();
+        Long middle = GraphDbHelper.createNode();
+        Long end = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("KNOWS", start, middle);
+        GraphDbHelper.createRelationship("KNOWS", middle, end);
+
+        Response response = service.getShortestPath(start, end, 6, RelationshipDirection.out, null);
+
+        assertEquals(200, response.getStatus());
+        Map<String, Object> path = JsonHelper.jsonToMap(entityAsString(response));
+        assertEquals(2, path.get("length"));
+        assertEquals(asList("http://tinkerpop.org/" + start, "http://tinkerpop.org/" + middle, "http://tinkerpop.org/" + end),
+                path.get("nodes"));
+        assertEquals(2, ((List<?>) path.get("relationships")).size());
+    }
+
+    @Test
+    public void shouldRespondWith404WhenNoPathWithinMaxDepth() {
+        Long start = GraphDbHelper.createNode();
+        Long end = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("KNOWS", start, end);
+
+        assertEquals(404, service.getShortestPath(end, start, 6, RelationshipDirection.out, null).getStatus());
+        assertEquals(404, service.getShortestPath(start, UNKNOWN_NODE, 6, RelationshipDirection.all, null).getStatus());
+        assertEquals(400, service.getShortestPath(start, end, 0, RelationshipDirection.all, null).getStatus());
+    }
+
+    @Test
+    public void shouldCountRelationshipsPerType() throws Exception {
+        Long node = GraphDbHelper.createNode();
+        GraphDbHelper.createRelationship("LIKES", node, GraphDbHelper.createNode());
+        GraphDbHelper.createRelationship("LIKES", node, GraphDbHelper.createNode());
+        GraphDbHelper.createRelationship("HATES", GraphDbHelper.createNode(), node);
+
+        Map<String, Object> all = JsonHelper.jsonToMap(entityAsString(service.getDegree(node, RelationshipDirection.all, null)));
+        Map<String, Object> out = JsonHelper.jsonToMap(entityAsString(service.getDegree(node, RelationshipDirection.out, null)));
+        Map<String, Object> typed = JsonHelper.jsonToMap(entityAsString(
+                service.getDegree(node, RelationshipDirection.all, new CommaSeparatedList("HATES,LOVES"))));
+
+        assertEquals(3, all.get("total"));
+        assertEquals(2, ((Map<?, ?>) all.get("types")).get("LIKES"));
+        assertEquals(1, ((Map<?, ?>) all.get("types")).get("HATES"));
+        assertEquals(2, out.get("total"));
+        assertEquals(1, typed.get("total"));
+        assertEquals(0, ((Map<?, ?>) typed.get("types")).get("LOVES"));
+    }
+
+    @Test
+    public void shouldRespondWith404ForDegreeOfUnknownNode() {
+        assertEquals(404, service.getDegree(UNKNOWN_NODE, RelationshipDirection.all, null).getStatus());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> dataOf(Map<String, Object> representation) {
+        return (Map<String, Object>) representation.get("data");
+    }
+
+    private static InputStream body(String json) {
+        try {
+            return new ByteArrayInputStream(json.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String entityAsString(Response response) {
+        Object entity = response.getEntity();
+        if (entity instanceof StreamingOutput) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                ((StreamingOutput) entity).write(out);
+                return out.toString("UTF-8");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        try {
+            return new String((byte[]) entity, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static HttpHeaders accepting(String mediaType, String acceptEncoding) {
+        HttpHeaders headers = mock(HttpHeaders.class);
+        when(headers.getAcceptableMediaTypes()).thenReturn(asList(MediaType.valueOf(mediaType)));
+        when(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING))
+                .thenReturn(acceptEncoding == null ? null : asList(acceptEncoding));
+        return headers;
+    }
+
     private UriInfo uriInfo() {
+        return uriInfo("http://tinkerpop.org/");
+    }
+
+    private UriInfo uriInfo(String baseUri) {
         UriInfo mockUriInfo = mock(UriInfo.class);
         try {
-            when(mockUriInfo.getBaseUri()).thenReturn(new URI("http://tinkerpop.org/"));
+            when(mockUriInfo.getBaseUri()).thenReturn(new URI(baseUri));
+            when(mockUriInfo.getRequestUriBuilder()).thenAnswer(new Answer<UriBuilder>() {
+                public UriBuilder answer(InvocationOnMock invocation) {
+                    return UriBuilder.fromUri("http://tinkerpop.org/1/relationships/dir/all?limit=2");
+                }
+            });
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }